@@ -0,0 +1,299 @@
+package org.basex.api.xmldb;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.server.*;
+import org.basex.util.*;
+import org.xmldb.api.base.*;
+
+/**
+ * Pool of client sessions to a database server, which is shared by all remote
+ * collections with the same address and credentials. The maximum number of
+ * sessions per pool can be assigned via the {@code org.basex.xmldbpool} option.
+ * Each session remembers the database it has opened, so that it needs to be
+ * reopened only if a collection of another database borrows the session.
+ * Sessions that have been idle for more than a minute are closed, and all
+ * remaining sessions are closed when the virtual machine is shut down.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class BXClientPool {
+  /** Name of the pool size option. */
+  private static final String POOL = Prop.DBPREFIX + "xmldbpool";
+  /** Default number of sessions per pool. */
+  private static final int SIZE = 8;
+  /** Time after which idle sessions are closed (ms). */
+  private static final long TIMEOUT = 60000;
+  /** Pools, indexed by address, user name and password hash. */
+  private static final HashMap<String, BXClientPool> POOLS =
+      new HashMap<String, BXClientPool>();
+
+  static {
+    final Timer timer = new Timer(true);
+    timer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        for(final BXClientPool pool : pools()) pool.close(TIMEOUT);
+      }
+    }, TIMEOUT, TIMEOUT);
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      @Override
+      public void run() {
+        timer.cancel();
+        for(final BXClientPool pool : pools()) pool.close(0);
+      }
+    });
+  }
+
+  /** Idle sessions; the most recently used session is the first entry. */
+  private final LinkedList<ClientSession> idle = new LinkedList<ClientSession>();
+  /** Times at which the idle sessions have been returned. */
+  private final IdentityHashMap<ClientSession, Long> released =
+      new IdentityHashMap<ClientSession, Long>();
+  /** Names of the databases opened by the sessions. */
+  private final IdentityHashMap<ClientSession, String> opened =
+      new IdentityHashMap<ClientSession, String>();
+  /** Maximum number of sessions. */
+  private final int max;
+  /** Server name. */
+  private final String host;
+  /** Server port. */
+  private final int port;
+  /** User name. */
+  private final String user;
+  /** Password. */
+  private final String pass;
+  /** Number of open sessions. */
+  private int size;
+
+  /**
+   * Constructor.
+   * @param h server name
+   * @param p server port
+   * @param u user name
+   * @param pw password
+   */
+  private BXClientPool(final String h, final int p, final String u, final String pw) {
+    host = h;
+    port = p;
+    user = u;
+    pass = pw;
+    int m = SIZE;
+    final String s = System.getProperty(POOL);
+    if(s != null) {
+      try {
+        m = Math.max(1, Integer.parseInt(s));
+      } catch(final NumberFormatException ex) {
+        // use default size
+      }
+    }
+    max = m;
+  }
+
+  /**
+   * Returns the pool for the specified address and credentials.
+   * @param h server name
+   * @param p server port
+   * @param u user name
+   * @param pw password
+   * @return pool
+   */
+  static BXClientPool get(final String h, final int p, final String u, final String pw) {
+    final String key = u + '@' + h + ':' + p + '/' + Token.md5(pw);
+    synchronized(POOLS) {
+      BXClientPool pool = POOLS.get(key);
+      if(pool == null) {
+        pool = new BXClientPool(h, p, u, pw);
+        POOLS.put(key, pool);
+      }
+      return pool;
+    }
+  }
+
+  /**
+   * Runs a task with a pooled session.
+   * @param db name of the database to be opened ({@code null}: no database)
+   * @param task task
+   * @param <T> result type
+   * @return result of the task
+   * @throws XMLDBException exception
+   */
+  <T> T run(final String db, final Task<T> task) throws XMLDBException {
+    final ClientSession cs = acquire(db);
+    boolean valid = false;
+    try {
+      final T result = task.run(cs);
+      valid = true;
+      return result;
+    } catch(final BaseXException ex) {
+      // errors raised by the server: session can still be used
+      valid = true;
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+    } catch(final IOException ex) {
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+    } finally {
+      release(cs, valid);
+    }
+  }
+
+  /**
+   * Returns a session from the pool. The session must be returned via
+   * {@link #release(ClientSession, boolean)}.
+   * @param db name of the database to be opened ({@code null}: no database)
+   * @return session
+   * @throws XMLDBException exception
+   */
+  ClientSession acquire(final String db) throws XMLDBException {
+    final ClientSession cs;
+    try {
+      cs = acquire();
+    } catch(final IOException ex) {
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+    }
+    if(db == null || db.equals(opened(cs, null))) return cs;
+
+    try {
+      // a failed attempt closes the currently opened database
+      opened(cs, "");
+      cs.execute(new Open(db));
+      opened(cs, db);
+      return cs;
+    } catch(final BaseXException ex) {
+      // errors raised by the server: session can still be used
+      release(cs, true);
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+    } catch(final IOException ex) {
+      release(cs, false);
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+    }
+  }
+
+  /**
+   * Returns or assigns the name of the database opened by a session.
+   * @param cs session
+   * @param db name of database to be assigned ({@code null}: return name)
+   * @return name of database
+   */
+  private synchronized String opened(final ClientSession cs, final String db) {
+    if(db != null) opened.put(cs, db);
+    return opened.get(cs);
+  }
+
+  /**
+   * Returns an idle session, or creates a new one. Waits if the maximum number
+   * of sessions has been reached. New connections are established outside the
+   * monitor of the pool.
+   * @return session
+   * @throws IOException I/O exception
+   */
+  private ClientSession acquire() throws IOException {
+    synchronized(this) {
+      while(idle.isEmpty() && size >= max) {
+        try {
+          wait();
+        } catch(final InterruptedException ex) {
+          throw new IOException(ex.getMessage());
+        }
+      }
+      if(!idle.isEmpty()) {
+        final ClientSession cs = idle.removeFirst();
+        released.remove(cs);
+        return cs;
+      }
+      // reserve a slot for the new session
+      size++;
+    }
+    boolean ok = false;
+    try {
+      final ClientSession cs = new ClientSession(host, port, user, pass);
+      ok = true;
+      return cs;
+    } finally {
+      if(!ok) {
+        synchronized(this) {
+          size--;
+          notify();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a session to the pool, or closes it if it cannot be used anymore.
+   * @param cs session
+   * @param valid validity flag
+   */
+  void release(final ClientSession cs, final boolean valid) {
+    synchronized(this) {
+      if(valid) {
+        idle.addFirst(cs);
+        released.put(cs, System.currentTimeMillis());
+      } else {
+        opened.remove(cs);
+        size--;
+      }
+      notify();
+    }
+    if(!valid) close(cs);
+  }
+
+  /**
+   * Closes all sessions that have been idle for the specified time.
+   * @param time minimum idle time (ms)
+   */
+  private void close(final long time) {
+    final ArrayList<ClientSession> list = new ArrayList<ClientSession>();
+    synchronized(this) {
+      final long min = System.currentTimeMillis() - time;
+      // the least recently used sessions are found at the end of the list
+      while(!idle.isEmpty() && released.get(idle.getLast()) <= min) {
+        final ClientSession cs = idle.removeLast();
+        released.remove(cs);
+        opened.remove(cs);
+        size--;
+        list.add(cs);
+      }
+    }
+    for(final ClientSession cs : list) close(cs);
+  }
+
+  /**
+   * Closes a session.
+   * @param cs session
+   */
+  private static void close(final ClientSession cs) {
+    try {
+      cs.close();
+    } catch(final IOException ex) {
+      // session is discarded anyway
+    }
+  }
+
+  /**
+   * Returns a copy of all pools.
+   * @return pools
+   */
+  private static ArrayList<BXClientPool> pools() {
+    synchronized(POOLS) {
+      return new ArrayList<BXClientPool>(POOLS.values());
+    }
+  }
+
+  /**
+   * Task that is run with a pooled session.
+   * @param <T> result type
+   */
+  abstract static class Task<T> {
+    /**
+     * Runs the task.
+     * @param cs client session
+     * @return result
+     * @throws IOException I/O exception
+     */
+    abstract T run(ClientSession cs) throws IOException;
+  }
+}
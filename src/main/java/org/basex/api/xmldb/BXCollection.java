@@ -4,11 +4,18 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.lang.reflect.*;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.Lock;
 
 import org.basex.build.*;
 import org.basex.build.xml.*;
 import org.basex.core.*;
-import org.basex.core.cmd.*;
 import org.basex.data.*;
 import org.basex.data.atomic.*;
 import org.basex.io.*;
@@ -20,15 +27,36 @@ import org.xmldb.api.modules.*;
 
 /**
  * Implementation of the Collection Interface for the XMLDB:API.
+ * Each collection has its own context. Collections of the same database share
+ * the opened data instance and its lock (see {@link BXDataRegistry}).
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
 public final class BXCollection implements Collection, BXXMLDBText {
+  /** Counter for generated ids, initialized with the current time. */
+  private static final AtomicLong ID = new AtomicLong(System.currentTimeMillis());
+  /** Thread pool for parsing resources in parallel, shared by all collections. */
+  private static final ExecutorService PARSERS = Executors.newFixedThreadPool(
+    Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread t = new Thread(r, "XMLDB-Parser");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+
   /** Database context. */
   final BXDatabase db;
   /** Database context. */
   Context ctx;
+  /** Handle of the opened database. */
+  final BXDataRegistry.Handle handle;
+  /** Update counter of the database at the time the context was updated. */
+  private int version;
+  /** Resources of the current transaction ({@code null}: no transaction). */
+  private LinkedHashMap<String, Object> batch;
 
   /**
    * Constructor to create/open a collection.
@@ -41,13 +69,14 @@ public final class BXCollection implements Collection, BXXMLDBText {
       throws XMLDBException {
 
     db = (BXDatabase) d;
-    ctx = db.ctx;
     try {
-      ctx.openDB(open ? Open.open(name, ctx) :
-        CreateDB.create(name, Parser.emptyParser(ctx.prop), ctx));
+      handle = db.datas.open(name, !open);
     } catch(final IOException ex) {
       throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
     }
+    ctx = db.datas.context();
+    ctx.openDB(handle.data);
+    version = handle.version;
   }
 
   @Override
@@ -61,7 +90,9 @@ public final class BXCollection implements Collection, BXXMLDBText {
     return new Service[] {
         getService(BXQueryService.XPATH, "1.0"),
         getService(BXQueryService.XQUERY, "1.0"),
-        getService(BXCollectionManagementService.MANAGEMENT, "1.0") };
+        getService(BXCollectionManagementService.MANAGEMENT, "1.0"),
+        getService(BXTransactionService.TRANSACTION, "1.0"),
+        getService(BXXUpdateQueryService.XUPDATE, "1.0") };
   }
 
   @Override
@@ -72,6 +103,10 @@ public final class BXCollection implements Collection, BXXMLDBText {
         return new BXQueryService(this, nm, ver);
       if(nm.equals(BXCollectionManagementService.MANAGEMENT))
         return new BXCollectionManagementService(this);
+      if(nm.equals(BXTransactionService.TRANSACTION))
+        return new BXTransactionService(this);
+      if(nm.equals(BXXUpdateQueryService.XUPDATE))
+        return new BXXUpdateQueryService(this);
     }
     return null;
   }
@@ -103,20 +138,103 @@ public final class BXCollection implements Collection, BXXMLDBText {
   @Override
   public int getResourceCount() throws XMLDBException {
     check();
-    return ctx.data().resources.docs().size();
+    final Lock lock = handle.lock.readLock();
+    lock.lock();
+    try {
+      return ctx.data().meta.ndocs;
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
   public String[] listResources() throws XMLDBException {
-    check();
+    return listResources(null, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns the names of a range of resources.
+   * @param prefix path prefix ({@code null}: all resources)
+   * @param offset number of resources to skip
+   * @param limit maximum number of returned resources
+   * @return resource names
+   * @throws XMLDBException exception
+   */
+  public String[] listResources(final String prefix, final int offset, final int limit)
+      throws XMLDBException {
+
     final StringList sl = new StringList();
-    final Data data = ctx.data();
-    final IntList il = data.resources.docs();
-    final int is = il.size();
-    for(int i = 0; i < is; i++) sl.add(Token.string(data.text(il.get(i), true)));
+    final Iterator<String> it = resources(prefix, offset, limit);
+    while(it.hasNext()) sl.add(it.next());
     return sl.toArray();
   }
 
+  /**
+   * Returns an iterator over the names of all resources.
+   * @return iterator
+   * @throws XMLDBException exception
+   */
+  public Iterator<String> resources() throws XMLDBException {
+    return resources(null, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns an iterator over the names of a range of resources.
+   * Names are only decoded when they are requested. The iterator fails if the
+   * database is updated while it is consumed.
+   * @param prefix path prefix ({@code null}: all resources)
+   * @param offset number of resources to skip
+   * @param limit maximum number of returned resources
+   * @return iterator
+   * @throws XMLDBException exception
+   */
+  public Iterator<String> resources(final String prefix, final int offset,
+      final int limit) throws XMLDBException {
+
+    check();
+    final Data data = ctx.data();
+    final Lock lock = handle.lock.readLock();
+    lock.lock();
+    final int[] pres;
+    final int v = handle.version;
+    try {
+      final IntList docs = prefix == null ? data.resources.docs() :
+        data.resources.docs(prefix);
+      final int start = Math.min(Math.max(0, offset), docs.size());
+      final int end = (int) Math.min(docs.size(), (long) start + Math.max(0, limit));
+      pres = new int[end - start];
+      for(int p = start; p < end; p++) pres[p - start] = docs.get(p);
+    } finally {
+      lock.unlock();
+    }
+    return new Iterator<String>() {
+      /** Current position. */
+      private int pos;
+
+      @Override
+      public boolean hasNext() {
+        return pos < pres.length;
+      }
+
+      @Override
+      public String next() {
+        if(!hasNext()) throw new NoSuchElementException();
+        lock.lock();
+        try {
+          if(handle.version != v) throw new ConcurrentModificationException();
+          return Token.string(data.text(pres[pos++], true));
+        } finally {
+          lock.unlock();
+        }
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
   @Override
   public BXXMLResource createResource(final String id, final String type)
       throws XMLDBException {
@@ -145,10 +263,16 @@ public final class BXCollection implements Collection, BXXMLDBText {
     if(del.data != data && del.data != null) throw new XMLDBException(
         ErrorCodes.NO_SUCH_RESOURCE, ERR_UNKNOWN + data.meta.name);
 
-    if(!data.startUpdate()) throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_LOCK);
-    data.delete(getResource(del.getId()).pos);
-    ctx.update();
-    data.finishUpdate();
+    final Lock lock = handle.lock.writeLock();
+    lock.lock();
+    try {
+      if(!data.startUpdate()) throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_LOCK);
+      data.delete(getResource(del.getId()).pos);
+      updated();
+      data.finishUpdate();
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
@@ -157,36 +281,156 @@ public final class BXCollection implements Collection, BXXMLDBText {
 
     // check if resource has any contents
     final BXXMLResource xml = checkXML(res);
-    if(res.getContent() == null)
+    if(xml.content == null && res.getContent() == null)
       throw new XMLDBException(ErrorCodes.INVALID_RESOURCE, ERR_EMPTY);
 
     // disallow storage of resources without id
     final String id = res.getId();
     if(id == null) throw new XMLDBException(ErrorCodes.INVALID_RESOURCE, ERR_ID);
 
-    // document exists - delete old one first
-    final Resource old = getResource(id);
-    if(old != null) removeResource(getResource(id));
+    // defer storage until the current transaction is committed
+    if(batch != null) {
+      batch.remove(id);
+      batch.put(id, xml.content);
+    } else {
+      store(new String[] { id }, new Object[] { xml.content });
+    }
+  }
 
-    // create parser, dependent on input type
-    final Object cont = xml.content;
+  /**
+   * Starts a transaction. Resources will be stored when the transaction is
+   * committed.
+   * @throws XMLDBException exception
+   */
+  void begin() throws XMLDBException {
+    check();
+    if(batch == null) batch = new LinkedHashMap<String, Object>();
+  }
 
-    // insert document
-    final Data md;
+  /**
+   * Commits the current transaction.
+   * @throws XMLDBException exception
+   */
+  void commit() throws XMLDBException {
+    check();
+    if(batch == null) return;
+    final int bs = batch.size();
+    final String[] ids = batch.keySet().toArray(new String[bs]);
+    final Object[] conts = batch.values().toArray(new Object[bs]);
+    batch = null;
+    store(ids, conts);
+  }
+
+  /**
+   * Discards the resources of the current transaction.
+   * @throws XMLDBException exception
+   */
+  void rollback() throws XMLDBException {
+    check();
+    batch = null;
+  }
+
+  /**
+   * Parses the specified contents and stores them in a single update.
+   * Existing documents with the same ids will be replaced: they are deleted in
+   * descending order, and the new documents are appended one after another.
+   * @param ids resource ids
+   * @param conts resource contents
+   * @throws XMLDBException exception
+   */
+  private void store(final String[] ids, final Object[] conts) throws XMLDBException {
+    final Data[] mds = parse(ids, conts);
+    if(mds.length == 0) return;
+
+    final Data data = ctx.data();
+    final Lock lock = handle.lock.writeLock();
+    lock.lock();
+    try {
+      if(!data.startUpdate()) throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_LOCK);
+      try {
+        // resolve existing documents first, and delete them from back to front
+        final IntList pres = new IntList(ids.length);
+        for(final String id : ids) {
+          final int pre = data.resources.doc(id);
+          if(pre != -1) pres.add(pre);
+        }
+        pres.sort();
+        for(int p = pres.size() - 1; p >= 0; p--) data.delete(pres.get(p));
+
+        for(int m = 0; m < mds.length; m++) {
+          data.insert(data.meta.size, -1, new DataClip(mds[m]));
+          // release the main memory instance as soon as it has been inserted
+          mds[m] = null;
+        }
+        updated();
+      } finally {
+        data.finishUpdate();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Parses the specified contents. Multiple contents are parsed in parallel.
+   * @param ids resource ids
+   * @param conts resource contents
+   * @return main memory instances
+   * @throws XMLDBException exception
+   */
+  private Data[] parse(final String[] ids, final Object[] conts) throws XMLDBException {
+    final int is = ids.length;
+    final Data[] mds = new Data[is];
+    if(is < 2) {
+      for(int i = 0; i < is; i++) mds[i] = parse(ids[i], conts[i]);
+      return mds;
+    }
+
+    final ArrayList<Future<Data>> futures = new ArrayList<Future<Data>>(is);
+    try {
+      for(int i = 0; i < is; i++) {
+        final String id = ids[i];
+        final Object cont = conts[i];
+        futures.add(PARSERS.submit(new Callable<Data>() {
+          @Override
+          public Data call() throws XMLDBException {
+            return parse(id, cont);
+          }
+        }));
+      }
+      for(int i = 0; i < is; i++) mds[i] = futures.get(i).get();
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof XMLDBException) throw (XMLDBException) th;
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, th.getMessage());
+    } catch(final InterruptedException ex) {
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+    } finally {
+      // cancel pending tasks if parsing failed
+      for(final Future<Data> f : futures) f.cancel(true);
+    }
+    return mds;
+  }
+
+  /**
+   * Parses the specified content.
+   * @param id resource id
+   * @param cont content (DOM document, byte array or main memory instance)
+   * @return main memory instance
+   * @throws XMLDBException exception
+   */
+  private Data parse(final String id, final Object cont) throws XMLDBException {
+    // content has been built via SAX
+    if(cont instanceof Data) return (Data) cont;
     try {
+      // create parser, dependent on input type
       final Parser p = cont instanceof Document ?
         new DOMWrapper((Document) cont, id, ctx.prop) :
         Parser.singleParser(new IOContent((byte[]) cont, id), ctx.prop, "");
-      md = MemBuilder.build(id, p);
+      return MemBuilder.build(id, p);
     } catch(final IOException ex) {
       throw new XMLDBException(ErrorCodes.INVALID_RESOURCE, ex.getMessage());
     }
-
-    final Data data = ctx.data();
-    if(!data.startUpdate()) throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_LOCK);
-    data.insert(data.meta.size, -1, new DataClip(md));
-    ctx.update();
-    data.finishUpdate();
   }
 
   @Override
@@ -194,18 +438,31 @@ public final class BXCollection implements Collection, BXXMLDBText {
     check();
     if(id == null) return null;
     final Data data = ctx.data();
-    final int pre = data.resources.doc(id);
-    return pre == -1 ? null : new BXXMLResource(data, pre, id, this);
+    final Lock lock = handle.lock.readLock();
+    lock.lock();
+    try {
+      final int pre = data.resources.doc(id);
+      return pre == -1 ? null : new BXXMLResource(data, pre, id, this);
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
   public String createId() throws XMLDBException {
-    final String[] res = listResources();
-    String id;
-    do {
-      id = Long.toString(System.currentTimeMillis());
-    } while(exists(res, id));
-    return id;
+    check();
+    final Data data = ctx.data();
+    final Lock lock = handle.lock.readLock();
+    lock.lock();
+    try {
+      String id;
+      do {
+        id = Long.toString(ID.incrementAndGet());
+      } while(data.resources.doc(id) != -1);
+      return id;
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
@@ -215,7 +472,7 @@ public final class BXCollection implements Collection, BXXMLDBText {
 
   @Override
   public void close() {
-    if(ctx != null) ctx.close();
+    if(ctx != null) db.datas.close(handle);
     ctx = null;
   }
 
@@ -232,6 +489,8 @@ public final class BXCollection implements Collection, BXXMLDBText {
   @Override
   public void setProperty(final String key, final String val) throws XMLDBException {
     check();
+    final Lock lock = handle.lock.writeLock();
+    lock.lock();
     try {
       final MetaData md = ctx.data().meta;
       final Field f = MetaData.class.getField(key);
@@ -248,18 +507,38 @@ public final class BXCollection implements Collection, BXXMLDBText {
       }
     } catch(final Exception ex) {
       throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_PROP + key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the documents of the database. The documents are updated if the
+   * database has been changed by another collection.
+   * @return documents
+   */
+  Nodes current() {
+    final Lock lock = handle.lock.readLock();
+    lock.lock();
+    try {
+      final int v = handle.version;
+      if(v != version) {
+        ctx.update();
+        version = v;
+      }
+      return ctx.current();
+    } finally {
+      lock.unlock();
     }
   }
 
   /**
-   * Checks if the specified id exists in the specified id list.
-   * @param list id list
-   * @param id id to be found
-   * @return result of check
+   * Updates the context after the database has been changed.
+   * Must be called while the write lock is held.
    */
-  private static boolean exists(final String[] list, final String id) {
-    for(final String l : list) if(l.equals(id)) return true;
-    return false;
+  void updated() {
+    ctx.update();
+    version = ++handle.version;
   }
 
   /**
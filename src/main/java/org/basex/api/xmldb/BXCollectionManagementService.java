@@ -39,8 +39,10 @@ final class BXCollectionManagementService implements
 
   @Override
   public void removeCollection(final String name) throws XMLDBException {
+    if(coll.db.datas.opened(name))
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_OPENED + name);
     try {
-      new DropDB(name).execute(coll.ctx);
+      new DropDB(name).execute(coll.db.datas.context());
     } catch(final BaseXException ex) {
       throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
     }
@@ -0,0 +1,111 @@
+package org.basex.api.xmldb;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.locks.*;
+
+import org.basex.build.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.util.*;
+
+/**
+ * Registry of the databases that are opened by the collections of a
+ * {@link BXDatabase}. All collections of a database share a single handle,
+ * which references the opened data instance and is closed as soon as the last
+ * collection has been closed. Each handle provides a read/write lock: updates
+ * are performed exclusively, whereas queries and retrievals may run in parallel.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class BXDataRegistry implements BXXMLDBText {
+  /** Handles, indexed by database name. */
+  private final HashMap<String, Handle> handles = new HashMap<String, Handle>();
+  /** Main database context. */
+  private final Context ctx;
+
+  /**
+   * Constructor.
+   * @param c main database context
+   */
+  BXDataRegistry(final Context c) {
+    ctx = c;
+  }
+
+  /**
+   * Opens or creates a database and returns its handle.
+   * @param name name of database
+   * @param create create new database
+   * @return handle
+   * @throws IOException I/O exception
+   */
+  synchronized Handle open(final String name, final boolean create) throws IOException {
+    Handle h = handles.get(name);
+    if(h == null) {
+      h = new Handle(create ? CreateDB.create(name, Parser.emptyParser(ctx.prop), ctx) :
+        Open.open(name, ctx));
+      handles.put(name, h);
+    } else if(create) {
+      throw new BaseXException(ERR_OPENED + name);
+    }
+    h.refs++;
+    return h;
+  }
+
+  /**
+   * Releases a handle. The database is closed if it is not referenced anymore.
+   * @param h handle
+   */
+  synchronized void close(final Handle h) {
+    if(--h.refs > 0) return;
+    handles.remove(h.data.meta.name);
+    final Context c = context();
+    c.openDB(h.data);
+    try {
+      new Close().execute(c);
+    } catch(final BaseXException ex) {
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Checks if the specified database is opened by a collection.
+   * @param name name of database
+   * @return result of check
+   */
+  synchronized boolean opened(final String name) {
+    return handles.containsKey(name);
+  }
+
+  /**
+   * Creates a new context, which shares the resources of the main context.
+   * @return context
+   */
+  Context context() {
+    final Context c = new Context(ctx, null);
+    c.user = ctx.user;
+    return c;
+  }
+
+  /** Handle of an opened database. */
+  static final class Handle {
+    /** Read/write lock. */
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Data reference. */
+    final Data data;
+    /** Update counter, which is incremented after each update. */
+    volatile int version;
+    /** Number of collections referencing this handle. */
+    int refs;
+
+    /**
+     * Constructor.
+     * @param d data reference
+     */
+    Handle(final Data d) {
+      data = d;
+    }
+  }
+}
@@ -11,6 +11,10 @@ import org.xmldb.api.base.Collection;
 
 /**
  * Implementation of the Database Interface for the XMLDB:API.
+ * Collections with the URI {@code xmldb:basex://localhost:PORT/NAME}, in which
+ * {@code PORT} is the configured server port, are opened in the local context.
+ * All other addresses refer to a database server, which is accessed via
+ * pooled client sessions; user name and password must be supplied for them.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
@@ -18,10 +22,12 @@ import org.xmldb.api.base.Collection;
 public final class BXDatabase implements Database, BXXMLDBText {
   /** Database context. */
   public final Context ctx = new Context();
+  /** Databases opened by collections. */
+  final BXDataRegistry datas = new BXDataRegistry(ctx);
 
   @Override
   public boolean acceptsURI(final String uri) throws XMLDBException {
-    getCollectionName(uri);
+    address(uri);
     return true;
   }
 
@@ -29,10 +35,21 @@ public final class BXDatabase implements Database, BXXMLDBText {
   public Collection getCollection(final String uri, final String user,
       final String password) throws XMLDBException {
 
-    // create database context
-    final String name = getCollectionName(uri);
-    final boolean exists = ctx.mprop.dbexists(name);
-    return exists ? new BXCollection(name, true, this) : null;
+    final String[] addr = address(uri);
+    final String name = addr[2];
+    if(addr[0] == null) {
+      // create database context
+      final boolean exists = ctx.mprop.dbexists(name);
+      return exists ? new BXCollection(name, true, this) : null;
+    }
+
+    // connect to remote server
+    if(user == null || password == null)
+      throw new XMLDBException(ErrorCodes.PERMISSION_DENIED, ERR_LOGIN + uri);
+    final BXClientPool pool = BXClientPool.get(addr[0], Integer.parseInt(addr[1]),
+        user, password);
+    final BXRemoteCollection coll = new BXRemoteCollection(name, pool);
+    return coll.exists() ? coll : null;
   }
 
   @Override
@@ -65,19 +82,35 @@ public final class BXDatabase implements Database, BXXMLDBText {
   }
 
   /**
-   * Returns the name of a collection.
+   * Returns the address of a collection.
    * @param uri input uri
-   * @return collection name
+   * @return server name and port ({@code null} for local collections)
+   * and collection name
    * @throws XMLDBException exception
    */
-  private String getCollectionName(final String uri) throws XMLDBException {
+  private String[] address(final String uri) throws XMLDBException {
     // try to extract name of collection; otherwise, throw exception
     if(uri != null) {
       final String main = uri.startsWith(XMLDBC) ? uri : XMLDBC + uri;
       if(main.startsWith(XMLDBURI)) {
         final String host = main.substring(XMLDBURI.length());
-        final String lh = LOCALHOST + ':' + ctx.mprop.num(MainProp.SERVERPORT) + '/';
-        if(host.startsWith(lh)) return host.substring(lh.length());
+        final int port = ctx.mprop.num(MainProp.SERVERPORT);
+        final String lh = LOCALHOST + ':' + port + '/';
+        if(host.startsWith(lh)) {
+          return new String[] { null, null, host.substring(lh.length()) };
+        }
+
+        // remote address: server name, optional port
+        final int s = host.indexOf('/');
+        if(s > 0) {
+          final String hp = host.substring(0, s);
+          final int c = hp.indexOf(':');
+          final String p = c == -1 ? Integer.toString(port) : hp.substring(c + 1);
+          if(c != 0 && p.matches("\\d+")) {
+            final String h = c == -1 ? hp : hp.substring(0, c);
+            return new String[] { h, p, host.substring(s + 1) };
+          }
+        }
       }
     }
     throw new XMLDBException(ErrorCodes.INVALID_URI, ERR_URI + uri);
@@ -3,6 +3,7 @@ package org.basex.api.xmldb;
 import static org.basex.util.Token.*;
 
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 
 import org.basex.data.*;
 import org.basex.query.*;
@@ -12,24 +13,38 @@ import org.xmldb.api.modules.*;
 
 /**
  * Abstract QueryService definition for the XMLDB:API.
+ * External variables can be bound to values, so that queries need not be
+ * assembled by concatenating strings.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
-final class BXQueryService implements XPathQueryService, BXXMLDBText {
+public final class BXQueryService implements XPathQueryService, BXXMLDBText {
   /** XPath service constant. */
   static final String XPATH = "XPathQueryService";
   /** XQuery service constant. */
   static final String XQUERY = "XQueryQueryService";
+  /** Property: lazy retrieval of query results. */
+  static final String LAZY = "lazy";
+  /** Property: number of prefetched results. */
+  static final String LOOKAHEAD = "lookahead";
 
   /** Namespaces. */
   private final HashMap<String, String> ns = new HashMap<String, String>();
+  /** Variable bindings. */
+  private final LinkedHashMap<String, Object> vars = new LinkedHashMap<String, Object>();
   /** Service name. */
   private final String name;
   /** Service version. */
   private final String version;
   /** Collection reference. */
   private BXCollection coll;
+  /** Lazy retrieval of query results. */
+  private boolean lazy;
+  /** Number of prefetched results. */
+  private int lookahead = 1;
+  /** Namespace prefixes and uris as tokens ({@code null}: not assigned yet). */
+  private byte[][] nsp;
 
   /**
    * Standard constructor.
@@ -45,8 +60,10 @@ final class BXQueryService implements XPathQueryService, BXXMLDBText {
 
   @Override
   public void setNamespace(final String pre, final String uri) throws XMLDBException {
-    if(uri != null && !uri.isEmpty()) ns.put(pre == null ? "" : pre, uri);
-    else throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_NSURI + pre);
+    if(uri == null || uri.isEmpty())
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_NSURI + pre);
+    ns.put(pre == null ? "" : pre, uri);
+    nsp = null;
   }
 
   @Override
@@ -57,16 +74,36 @@ final class BXQueryService implements XPathQueryService, BXXMLDBText {
   @Override
   public void removeNamespace(final String pre) {
     ns.remove(pre == null ? "" : pre);
+    nsp = null;
   }
 
   @Override
   public void clearNamespaces() {
     ns.clear();
+    nsp = null;
+  }
+
+  /**
+   * Binds a value to an external variable. The binding applies to all
+   * subsequent queries of this service.
+   * @param nm name of variable (without dollar sign)
+   * @param value value to be bound ({@code null}: remove binding)
+   */
+  public void declareVariable(final String nm, final Object value) {
+    if(value == null) vars.remove(nm);
+    else vars.put(nm, value);
+  }
+
+  /**
+   * Removes all variable bindings.
+   */
+  public void clearVariables() {
+    vars.clear();
   }
 
   @Override
   public BXResourceSet query(final String query) throws XMLDBException {
-    return query(coll.ctx.current(), query);
+    return query(coll.current(), query);
   }
 
   @Override
@@ -96,11 +133,24 @@ final class BXQueryService implements XPathQueryService, BXXMLDBText {
 
   @Override
   public String getProperty(final String nm) {
-    return null;
+    return nm.equals(LAZY) ? Boolean.toString(lazy) :
+      nm.equals(LOOKAHEAD) ? Integer.toString(lookahead) : null;
   }
 
   @Override
   public void setProperty(final String nm, final String value) throws XMLDBException {
+    try {
+      if(nm.equals(LAZY)) {
+        lazy = Boolean.parseBoolean(value);
+        return;
+      }
+      if(nm.equals(LOOKAHEAD)) {
+        lookahead = Math.max(1, Integer.parseInt(value));
+        return;
+      }
+    } catch(final NumberFormatException ex) {
+      // invalid values are rejected below
+    }
     throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_PROP + nm);
   }
 
@@ -116,18 +166,48 @@ final class BXQueryService implements XPathQueryService, BXXMLDBText {
 
     // creates a query instance
     final QueryProcessor qp = new QueryProcessor(query, coll.ctx).context(nodes);
+    boolean close = true;
     try {
       coll.ctx.register(qp);
       // add default namespaces
-      for(final String n : ns.keySet()) {
-        qp.ctx.sc.ns.add(token(n), token(ns.get(n)), null);
+      if(nsp == null) {
+        nsp = new byte[ns.size() << 1][];
+        int n = 0;
+        for(final Map.Entry<String, String> e : ns.entrySet()) {
+          nsp[n++] = token(e.getKey());
+          nsp[n++] = token(e.getValue());
+        }
+      }
+      for(int n = 0; n < nsp.length; n += 2) qp.ctx.sc.ns.add(nsp[n], nsp[n + 1], null);
+      // bind variables
+      for(final Map.Entry<String, Object> e : vars.entrySet()) {
+        qp.bind(e.getKey(), e.getValue());
+      }
+      // updating queries are performed exclusively
+      qp.parse();
+      final boolean updating = qp.ctx.updating;
+      final Lock lock = updating ? coll.handle.lock.writeLock() :
+        coll.handle.lock.readLock();
+      lock.lock();
+      try {
+        // perform query and return result
+        if(!lazy || updating) {
+          final BXResourceSet rs = new BXResourceSet(qp.execute(), coll);
+          if(updating) coll.updated();
+          return rs;
+        }
+        // lazy results: query will be closed by the resource set. The query is
+        // registered again by the set whenever further items are retrieved.
+        final BXResourceSet rs = new BXResourceSet(qp, qp.iter(), coll, lookahead);
+        close = false;
+        return rs;
+      } finally {
+        lock.unlock();
       }
-      // perform query and return result
-      return new BXResourceSet(qp.execute(), coll);
     } catch(final QueryException ex) {
       throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
     } finally {
-      qp.close();
+      if(close) qp.close();
       coll.ctx.unregister(qp);
     }
   }
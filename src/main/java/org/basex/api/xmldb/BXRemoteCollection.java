@@ -0,0 +1,262 @@
+package org.basex.api.xmldb;
+
+import static org.basex.query.func.Function.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.in.*;
+import org.basex.server.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+import org.xmldb.api.base.*;
+import org.xmldb.api.base.Collection;
+import org.xmldb.api.modules.*;
+
+/**
+ * Implementation of the Collection Interface for the XMLDB:API, which accesses
+ * a database on a remote server. All operations are performed with sessions
+ * of a shared {@link BXClientPool}. Transactions and collection management are
+ * only available for local collections.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class BXRemoteCollection implements Collection, BXXMLDBText {
+  /** Query for retrieving the paths of all documents. */
+  private static final String PATHS =
+      _DB_LIST_DETAILS.args("$d") + "[not(@raw = 'true')]/text()";
+  /** Query for retrieving a single document. */
+  private static final String DOC = "for $n in " + _DB_OPEN.args("$d", "$p") +
+      " where " + _DB_PATH.args("$n") + " = $p return $n";
+
+  /** Session pool. */
+  final BXClientPool pool;
+  /** Name of the database. */
+  final String name;
+  /** Open flag. */
+  private boolean open = true;
+
+  /**
+   * Constructor.
+   * @param n name of the database
+   * @param p session pool
+   */
+  BXRemoteCollection(final String n, final BXClientPool p) {
+    name = n;
+    pool = p;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Service[] getServices() throws XMLDBException {
+    check();
+    return new Service[] {
+        getService(BXQueryService.XPATH, "1.0"),
+        getService(BXQueryService.XQUERY, "1.0") };
+  }
+
+  @Override
+  public Service getService(final String nm, final String ver) throws XMLDBException {
+    check();
+    if(ver.equals("1.0") && Token.eq(nm, BXQueryService.XPATH, BXQueryService.XQUERY))
+      return new BXRemoteQueryService(this, nm, ver);
+    return null;
+  }
+
+  @Override
+  public Collection getParentCollection() throws XMLDBException {
+    check();
+    return null;
+  }
+
+  @Override
+  public Collection getChildCollection(final String nm) throws XMLDBException {
+    check();
+    return null;
+  }
+
+  @Override
+  public int getChildCollectionCount() throws XMLDBException {
+    check();
+    return 0;
+  }
+
+  @Override
+  public String[] listChildCollections() throws XMLDBException {
+    check();
+    return new String[] {};
+  }
+
+  @Override
+  public int getResourceCount() throws XMLDBException {
+    return Integer.parseInt(query("count(" + PATHS + ")", null).get(0));
+  }
+
+  @Override
+  public String[] listResources() throws XMLDBException {
+    return query(PATHS, null).toArray();
+  }
+
+  @Override
+  public BXXMLResource createResource(final String id, final String type)
+      throws XMLDBException {
+
+    check();
+    if(type.equals(XMLResource.RESOURCE_TYPE)) {
+      // create new id, if necessary
+      final String uid = id == null || id.isEmpty() ? createId() : id;
+      return new BXXMLResource(null, 0, uid, this);
+    }
+    // reject binary and other resources
+    throw type.equals(BinaryResource.RESOURCE_TYPE) ?
+      new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_BINARY) :
+      new XMLDBException(ErrorCodes.UNKNOWN_RESOURCE_TYPE, ERR_TYPE + type);
+  }
+
+  @Override
+  public void removeResource(final Resource res) throws XMLDBException {
+    final String id = res.getId();
+    if(getResource(id) == null)
+      throw new XMLDBException(ErrorCodes.NO_SUCH_RESOURCE, ERR_UNKNOWN + id);
+    query(_DB_DELETE.args("$d", "$p"), id);
+  }
+
+  @Override
+  public void storeResource(final Resource res) throws XMLDBException {
+    check();
+
+    // serialize contents (string, byte array, DOM document or SAX stream)
+    final byte[] cont;
+    if(res instanceof BXXMLResource) {
+      cont = ((BXXMLResource) res).serialize();
+    } else {
+      final Object c = res.getContent();
+      if(c != null && !(c instanceof String))
+        throw new XMLDBException(ErrorCodes.WRONG_CONTENT_TYPE);
+      cont = c == null ? null : token((String) c);
+    }
+    if(cont == null) throw new XMLDBException(ErrorCodes.INVALID_RESOURCE, ERR_EMPTY);
+
+    // disallow storage of resources without id
+    final String id = res.getId();
+    if(id == null) throw new XMLDBException(ErrorCodes.INVALID_RESOURCE, ERR_ID);
+
+    pool.run(name, new BXClientPool.Task<Object>() {
+      @Override
+      Object run(final ClientSession cs) throws IOException {
+        cs.replace(id, new ArrayInput(cont));
+        return null;
+      }
+    });
+  }
+
+  @Override
+  public BXXMLResource getResource(final String id) throws XMLDBException {
+    // the contents of the document are retrieved on demand
+    if(id == null || !Boolean.parseBoolean(query("exists(" + DOC + ')', id).get(0)))
+      return null;
+    return new BXXMLResource(null, 0, id, this);
+  }
+
+  @Override
+  public String createId() throws XMLDBException {
+    check();
+    return UUID.randomUUID().toString();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void close() {
+    open = false;
+  }
+
+  @Override
+  public String getProperty(final String key) {
+    return null;
+  }
+
+  @Override
+  public void setProperty(final String key, final String val) throws XMLDBException {
+    throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_PROP + key);
+  }
+
+  /**
+   * Returns the serialized contents of a document.
+   * @param id resource id
+   * @return contents
+   * @throws XMLDBException exception
+   */
+  byte[] content(final String id) throws XMLDBException {
+    final StringList sl = query(DOC, id);
+    if(sl.size() == 0)
+      throw new XMLDBException(ErrorCodes.NO_SUCH_RESOURCE, ERR_RES + id);
+    return token(sl.get(0));
+  }
+
+  /**
+   * Checks if the database exists.
+   * @return result of check
+   * @throws XMLDBException exception
+   */
+  boolean exists() throws XMLDBException {
+    return pool.run(null, new BXClientPool.Task<Boolean>() {
+      @Override
+      Boolean run(final ClientSession cs) throws IOException {
+        final ClientQuery q = cs.query(_DB_EXISTS.args("$d"));
+        try {
+          q.bind("d", name);
+          return Boolean.parseBoolean(q.execute());
+        } finally {
+          q.close();
+        }
+      }
+    });
+  }
+
+  /**
+   * Evaluates a query on the remote database. The variables {@code $d} and
+   * {@code $p} are bound to the name of the database and the specified path.
+   * @param query query string
+   * @param path path ({@code null}: no path)
+   * @return serialized items
+   * @throws XMLDBException exception
+   */
+  private StringList query(final String query, final String path)
+      throws XMLDBException {
+
+    check();
+    return pool.run(name, new BXClientPool.Task<StringList>() {
+      @Override
+      StringList run(final ClientSession cs) throws IOException {
+        final StringList sl = new StringList();
+        final ClientQuery q = cs.query(query);
+        try {
+          q.bind("d", name);
+          if(path != null) q.bind("p", path);
+          while(q.more()) sl.add(q.next());
+        } finally {
+          q.close();
+        }
+        return sl;
+      }
+    });
+  }
+
+  /**
+   * Checks if the collection is currently open.
+   * @throws XMLDBException exception
+   */
+  void check() throws XMLDBException {
+    if(!open) throw new XMLDBException(ErrorCodes.COLLECTION_CLOSED);
+  }
+}
@@ -0,0 +1,278 @@
+package org.basex.api.xmldb;
+
+import static org.basex.query.func.Function.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.server.*;
+import org.xmldb.api.base.*;
+import org.xmldb.api.base.Collection;
+import org.xmldb.api.modules.*;
+
+/**
+ * Implementation of the XPathQueryService Interface for remote collections.
+ * Namespaces are declared in the query prolog, and results are returned as
+ * serialized resources. Queries on single resources are evaluated as relative
+ * path expressions and must not contain a prolog.
+ * By default, all items are retrieved at once, and the pooled session is
+ * returned right away. If the {@code lazy} property is set to {@code true},
+ * results are streamed: a resource set keeps its session until all items have
+ * been retrieved, the set is cleared, or the set is garbage collected.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class BXRemoteQueryService implements XPathQueryService, BXXMLDBText {
+  /** Name of the variable bound to the database name. */
+  private static final String DB = "xmldb-db";
+  /** Name of the variable bound to the resource id. */
+  private static final String ID = "xmldb-id";
+
+  /** Namespaces. */
+  private final HashMap<String, String> ns = new HashMap<String, String>();
+  /** Variable bindings. */
+  private final LinkedHashMap<String, Object> vars = new LinkedHashMap<String, Object>();
+  /** Service name. */
+  private final String name;
+  /** Service version. */
+  private final String version;
+  /** Collection reference. */
+  private BXRemoteCollection coll;
+  /** Lazy retrieval of query results. */
+  private boolean lazy;
+  /** Number of prefetched results. */
+  private int lookahead = 1;
+
+  /**
+   * Standard constructor.
+   * @param c for collection reference
+   * @param n service name
+   * @param v version
+   */
+  BXRemoteQueryService(final BXRemoteCollection c, final String n, final String v) {
+    coll = c;
+    name = n;
+    version = v;
+  }
+
+  @Override
+  public void setNamespace(final String pre, final String uri) throws XMLDBException {
+    if(uri == null || uri.isEmpty())
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_NSURI + pre);
+    ns.put(pre == null ? "" : pre, uri);
+  }
+
+  @Override
+  public String getNamespace(final String pre) {
+    return ns.get(pre == null ? "" : pre);
+  }
+
+  @Override
+  public void removeNamespace(final String pre) {
+    ns.remove(pre == null ? "" : pre);
+  }
+
+  @Override
+  public void clearNamespaces() {
+    ns.clear();
+  }
+
+  /**
+   * Binds a value to an external variable. The binding applies to all
+   * subsequent queries of this service.
+   * @param nm name of variable (without dollar sign)
+   * @param value value to be bound ({@code null}: remove binding)
+   */
+  public void declareVariable(final String nm, final Object value) {
+    if(value == null) vars.remove(nm);
+    else vars.put(nm, value);
+  }
+
+  /**
+   * Removes all variable bindings.
+   */
+  public void clearVariables() {
+    vars.clear();
+  }
+
+  @Override
+  public BXResourceSet query(final String query) throws XMLDBException {
+    return query(prolog() + query, null);
+  }
+
+  @Override
+  public BXResourceSet queryResource(final String id, final String query)
+      throws XMLDBException {
+
+    final String doc = "$" + DB;
+    final String path = "$" + ID;
+    return query(prolog() + "for $xmldb-node in " + _DB_OPEN.args(doc, path) +
+        " where " + _DB_PATH.args("$xmldb-node") + " = " + path +
+        " return $xmldb-node/(" + query + ')', id);
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String getVersion() {
+    return version;
+  }
+
+  @Override
+  public void setCollection(final Collection col) {
+    coll = (BXRemoteCollection) col;
+  }
+
+  @Override
+  public String getProperty(final String nm) {
+    return nm.equals(BXQueryService.LAZY) ? Boolean.toString(lazy) :
+      nm.equals(BXQueryService.LOOKAHEAD) ? Integer.toString(lookahead) : null;
+  }
+
+  @Override
+  public void setProperty(final String nm, final String value) throws XMLDBException {
+    try {
+      if(nm.equals(BXQueryService.LAZY)) {
+        lazy = Boolean.parseBoolean(value);
+        return;
+      }
+      if(nm.equals(BXQueryService.LOOKAHEAD)) {
+        lookahead = Math.max(1, Integer.parseInt(value));
+        return;
+      }
+    } catch(final NumberFormatException ex) {
+      // invalid values are rejected below
+    }
+    throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_PROP + nm);
+  }
+
+  /**
+   * Returns a prolog with the declared namespaces.
+   * @return prolog
+   */
+  private String prolog() {
+    final StringBuilder sb = new StringBuilder();
+    for(final Map.Entry<String, String> e : ns.entrySet()) {
+      final String uri = e.getValue().replace("\"", "\"\"");
+      if(e.getKey().isEmpty()) {
+        sb.append("declare default element namespace \"").append(uri).append("\";");
+      } else {
+        sb.append("declare namespace ").append(e.getKey()).append(" = \"");
+        sb.append(uri).append("\";");
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Evaluates a query on the remote database.
+   * @param query query string
+   * @param id resource id ({@code null}: query all documents)
+   * @return resource set
+   * @throws XMLDBException exception
+   */
+  private BXResourceSet query(final String query, final String id)
+      throws XMLDBException {
+
+    coll.check();
+    final BXClientPool pool = coll.pool;
+    final ClientSession cs = pool.acquire(coll.name);
+    boolean valid = false;
+    try {
+      final ClientQuery q = cs.query(query);
+      try {
+        for(final Map.Entry<String, Object> e : vars.entrySet()) {
+          q.bind(e.getKey(), e.getValue());
+        }
+        if(id != null) {
+          q.bind(DB, coll.name);
+          q.bind(ID, id);
+        }
+        // the first request evaluates the query and reports errors
+        final boolean more = q.more();
+        final BXResourceSet rs = new BXResourceSet(
+            new QueryCursor(pool, cs, q, coll, more), coll, lookahead);
+        valid = true;
+        if(!lazy) rs.getSize();
+        return rs;
+      } finally {
+        if(!valid) q.close();
+      }
+    } catch(final BaseXException ex) {
+      // errors raised by the server: session can still be used
+      pool.release(cs, true);
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+    } catch(final IOException ex) {
+      pool.release(cs, false);
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+    }
+  }
+
+  /** Cursor on a remote query, which returns its session to the pool when closed. */
+  private static final class QueryCursor extends BXResourceSet.Cursor {
+    /** Session pool. */
+    private final BXClientPool pool;
+    /** Client session. */
+    private final ClientSession cs;
+    /** Client query. */
+    private final ClientQuery query;
+    /** Collection. */
+    private final BXRemoteCollection coll;
+    /** Flag for remaining items. */
+    private boolean more;
+    /** Validity of the session. */
+    private boolean valid = true;
+
+    /**
+     * Constructor.
+     * @param p session pool
+     * @param s client session
+     * @param q client query
+     * @param c collection
+     * @param m flag for remaining items
+     */
+    QueryCursor(final BXClientPool p, final ClientSession s, final ClientQuery q,
+        final BXRemoteCollection c, final boolean m) {
+      pool = p;
+      cs = s;
+      query = q;
+      coll = c;
+      more = m;
+    }
+
+    @Override
+    void fetch(final List<Resource> buffer, final int max) throws XMLDBException {
+      try {
+        while(more && buffer.size() < max) {
+          buffer.add(new BXXMLResource(token(query.next()), coll));
+          more = query.more();
+        }
+      } catch(final BaseXException ex) {
+        more = false;
+        throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+      } catch(final IOException ex) {
+        more = false;
+        valid = false;
+        throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+      }
+    }
+
+    @Override
+    void close() {
+      try {
+        query.close();
+      } catch(final BaseXException ex) {
+        // query is discarded anyway
+      } catch(final IOException ex) {
+        valid = false;
+      }
+      pool.release(cs, valid);
+    }
+  }
+}
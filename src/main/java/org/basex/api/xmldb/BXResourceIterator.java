@@ -14,30 +14,45 @@ final class BXResourceIterator implements ResourceIterator, BXXMLDBText,
     Iterable<Resource> {
 
   /** Resources. */
-  private final Iterator<Resource> res;
+  private final ArrayList<Resource> res;
+  /** Lazy resource set, providing the remaining resources (may be {@code null}). */
+  private final BXResourceSet set;
+  /** Current position. */
+  private int pos;
 
   /**
    * Standard constructor with result.
    * @param r resources
    */
   BXResourceIterator(final ArrayList<Resource> r) {
-    res = r.iterator();
+    this(r, null);
+  }
+
+  /**
+   * Constructor for lazy resource sets.
+   * @param r resources
+   * @param s lazy resource set (may be {@code null})
+   */
+  BXResourceIterator(final ArrayList<Resource> r, final BXResourceSet s) {
+    res = r;
+    set = s;
   }
 
   @Override
-  public boolean hasMoreResources() {
-    return res.hasNext();
+  public boolean hasMoreResources() throws XMLDBException {
+    // resources retrieved by the lazy set are added to the resource list
+    return pos < res.size() || set != null && set.more();
   }
 
   @Override
   public Resource nextResource() throws XMLDBException {
-    if(!res.hasNext())
+    if(!hasMoreResources())
       throw new XMLDBException(ErrorCodes.NO_SUCH_RESOURCE, ERR_ITER);
-    return res.next();
+    return res.get(pos++);
   }
 
   @Override
   public Iterator<Resource> iterator() {
-    return res;
+    return res.iterator();
   }
 }
@@ -1,14 +1,27 @@
 package org.basex.api.xmldb;
 
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 
+import org.basex.core.*;
 import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.item.*;
 import org.basex.util.*;
 import org.xmldb.api.base.*;
 import org.xmldb.api.base.Collection;
 
 /**
  * Implementation of the ResourceSet Interface for the XMLDB:API.
+ * A resource set can either be created from a complete query result, or it can
+ * be backed by a query iterator. In the latter case, resources are created on
+ * demand and the query is kept open until all items have been retrieved, the
+ * set is cleared, or the set is garbage collected. Retrieved resources are kept
+ * in the set; all remaining items are retrieved as soon as random access is
+ * requested. The query of a lazy set is registered, and the database is locked,
+ * whenever items are retrieved. If the collection is modified while a lazy set
+ * is being retrieved, an exception is raised.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
@@ -18,6 +31,12 @@ final class BXResourceSet implements ResourceSet, BXXMLDBText {
   private final ArrayList<Resource> res;
   /** Collection reference. */
   private final Collection coll;
+  /** Prefetched resources of a lazy set. */
+  private final LinkedList<Resource> buffer = new LinkedList<Resource>();
+  /** Maximum number of prefetched resources. */
+  private final int lookahead;
+  /** Cursor of a lazy set ({@code null} if all items have been retrieved). */
+  private Cursor cursor;
 
   /**
    * Default constructor with result.
@@ -29,31 +48,75 @@ final class BXResourceSet implements ResourceSet, BXXMLDBText {
     res = new ArrayList<Resource>((int) r.size());
     for(int s = 0; s < r.size(); ++s) res.add(new BXXMLResource(r, s, c));
     coll = c;
+    lookahead = 0;
+  }
+
+  /**
+   * Constructor with resources.
+   * @param r resources
+   * @param c collection
+   */
+  BXResourceSet(final ArrayList<Resource> r, final Collection c) {
+    res = r;
+    coll = c;
+    lookahead = 0;
+  }
+
+  /**
+   * Constructor for lazy results, which must be called while the read lock of the
+   * collection is held. The query processor is closed when all items have been
+   * retrieved.
+   * @param q query processor
+   * @param ir query iterator
+   * @param c collection
+   * @param la maximum number of prefetched resources
+   */
+  BXResourceSet(final QueryProcessor q, final Iter ir, final BXCollection c,
+      final int la) {
+    this(new QueryCursor(q, ir, c), c, la);
+  }
+
+  /**
+   * Constructor for lazy results. The cursor is closed when all items have been
+   * retrieved.
+   * @param cr cursor
+   * @param c collection
+   * @param la maximum number of prefetched resources
+   */
+  BXResourceSet(final Cursor cr, final Collection c, final int la) {
+    res = new ArrayList<Resource>();
+    coll = c;
+    cursor = cr;
+    lookahead = Math.max(1, la);
   }
 
   @Override
   public Resource getResource(final long i) throws XMLDBException {
+    materialize();
     if(i >= 0 && i < res.size()) return res.get((int) i);
     throw new XMLDBException(ErrorCodes.NO_SUCH_RESOURCE);
   }
 
   @Override
-  public void addResource(final Resource r) {
+  public void addResource(final Resource r) throws XMLDBException {
+    materialize();
     res.add(r);
   }
 
   @Override
-  public void removeResource(final long index) {
+  public void removeResource(final long index) throws XMLDBException {
+    materialize();
     res.remove((int) index);
   }
 
   @Override
   public BXResourceIterator getIterator() {
-    return new BXResourceIterator(res);
+    return new BXResourceIterator(res, cursor != null || !buffer.isEmpty() ? this : null);
   }
 
   @Override
   public Resource getMembersAsResource() throws XMLDBException {
+    materialize();
     final TokenBuilder tb = new TokenBuilder().add('<').add(XMLDB).add('>');
     for(final Resource r : getIterator()) {
       tb.add(r.getContent().toString());
@@ -62,12 +125,133 @@ final class BXResourceSet implements ResourceSet, BXXMLDBText {
   }
 
   @Override
-  public long getSize() {
+  public long getSize() throws XMLDBException {
+    materialize();
     return res.size();
   }
 
   @Override
   public void clear() {
+    close();
+    buffer.clear();
     res.clear();
   }
+
+  /**
+   * Retrieves the next resource of a lazy set and adds it to the resources.
+   * @return {@code false} if all items have been retrieved
+   * @throws XMLDBException exception
+   */
+  boolean more() throws XMLDBException {
+    if(buffer.isEmpty() && cursor != null) {
+      boolean ok = false;
+      try {
+        cursor.fetch(buffer, lookahead);
+        ok = true;
+      } finally {
+        if(!ok || buffer.size() < lookahead) close();
+      }
+    }
+    final Resource r = buffer.poll();
+    if(r == null) return false;
+    res.add(r);
+    return true;
+  }
+
+  /**
+   * Retrieves all remaining items of a lazy set.
+   * @throws XMLDBException exception
+   */
+  private void materialize() throws XMLDBException {
+    while(more());
+  }
+
+  /**
+   * Closes the cursor of a lazy set.
+   */
+  private void close() {
+    if(cursor == null) return;
+    cursor.close();
+    cursor = null;
+  }
+
+  @Override
+  protected void finalize() throws Throwable {
+    // close the cursor of a set that has neither been retrieved nor cleared
+    close();
+    super.finalize();
+  }
+
+  /** Cursor, which retrieves the items of a lazy set. */
+  abstract static class Cursor {
+    /**
+     * Adds resources to the specified buffer. Less resources than requested
+     * will only be added if all items have been retrieved.
+     * @param buffer buffer
+     * @param max maximum size of the buffer
+     * @throws XMLDBException exception
+     */
+    abstract void fetch(List<Resource> buffer, int max) throws XMLDBException;
+
+    /**
+     * Closes the cursor.
+     */
+    abstract void close();
+  }
+
+  /** Cursor on a local query. */
+  private static final class QueryCursor extends Cursor {
+    /** Query processor. */
+    private final QueryProcessor qp;
+    /** Query iterator. */
+    private final Iter iter;
+    /** Collection. */
+    private final BXCollection coll;
+    /** Collection version at the time the cursor was created. */
+    private final int version;
+
+    /**
+     * Constructor.
+     * @param q query processor
+     * @param ir query iterator
+     * @param c collection
+     */
+    QueryCursor(final QueryProcessor q, final Iter ir, final BXCollection c) {
+      qp = q;
+      iter = ir;
+      coll = c;
+      version = c.handle.version;
+    }
+
+    @Override
+    void fetch(final List<Resource> buffer, final int max) throws XMLDBException {
+      final Context ctx = coll.ctx;
+      if(ctx == null) throw new XMLDBException(ErrorCodes.COLLECTION_CLOSED);
+      final BXDataRegistry.Handle handle = coll.handle;
+      // the query is registered again while the database is accessed
+      ctx.register(qp);
+      try {
+        final Lock lock = handle.lock.readLock();
+        lock.lock();
+        try {
+          if(handle.version != version)
+            throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_MODIFIED);
+          for(Item it; buffer.size() < max && (it = iter.next()) != null;) {
+            buffer.add(new BXXMLResource(it, coll));
+          }
+        } catch(final QueryException ex) {
+          throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+        } finally {
+          lock.unlock();
+        }
+      } finally {
+        ctx.unregister(qp);
+      }
+    }
+
+    @Override
+    void close() {
+      qp.close();
+    }
+  }
 }
@@ -0,0 +1,163 @@
+package org.basex.api.xmldb;
+
+import static org.basex.util.Token.*;
+
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+import org.xml.sax.*;
+import org.xml.sax.ext.*;
+import org.xml.sax.helpers.*;
+
+/**
+ * Emits SAX events for a database node. The node table is traversed directly,
+ * so the node need not be serialized and parsed again. Comments are reported
+ * if the content handler is also a {@link LexicalHandler}.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class BXSAXEmitter {
+  /** Attribute type. */
+  private static final String CDATA = "CDATA";
+  /** Data reference. */
+  private final Data data;
+  /** Content handler. */
+  private final ContentHandler handler;
+  /** Pre values of open elements. */
+  private final IntList elems = new IntList();
+  /** Namespaces declared by open elements. */
+  private final ArrayList<Atts> nsps = new ArrayList<Atts>();
+
+  /**
+   * Constructor.
+   * @param d data reference
+   * @param h content handler
+   */
+  BXSAXEmitter(final Data d, final ContentHandler h) {
+    data = d;
+    handler = h;
+  }
+
+  /**
+   * Emits the events for the specified node.
+   * @param pre pre value of the node (must not be an attribute)
+   * @throws SAXException SAX exception
+   */
+  void emit(final int pre) throws SAXException {
+    handler.startDocument();
+    final int end = pre + data.size(pre, data.kind(pre));
+    for(int p = pre; p < end;) {
+      final int k = data.kind(p);
+      close(p);
+      if(k == Data.ELEM) {
+        // the first element also declares the namespaces of its ancestors
+        start(p, p == pre ? scope(p) : data.ns(p));
+        p += data.attSize(p, k);
+      } else {
+        if(k == Data.TEXT) {
+          final char[] ch = string(data.text(p, true)).toCharArray();
+          handler.characters(ch, 0, ch.length);
+        } else if(k == Data.COMM) {
+          if(handler instanceof LexicalHandler) {
+            final char[] ch = string(data.text(p, true)).toCharArray();
+            ((LexicalHandler) handler).comment(ch, 0, ch.length);
+          }
+        } else if(k == Data.PI) {
+          final String pi = string(data.text(p, true));
+          final int i = pi.indexOf(' ');
+          handler.processingInstruction(i == -1 ? pi : pi.substring(0, i),
+              i == -1 ? "" : pi.substring(i + 1));
+        }
+        p++;
+      }
+    }
+    close(end);
+    handler.endDocument();
+  }
+
+  /**
+   * Emits the start events of an element.
+   * @param pre pre value
+   * @param ns namespaces declared by the element
+   * @throws SAXException SAX exception
+   */
+  private void start(final int pre, final Atts ns) throws SAXException {
+    for(int n = 0; n < ns.size(); n++) {
+      handler.startPrefixMapping(string(ns.name(n)), string(ns.string(n)));
+    }
+    final AttributesImpl atts = new AttributesImpl();
+    final int as = pre + data.attSize(pre, Data.ELEM);
+    for(int a = pre + 1; a < as; a++) {
+      final byte[] name = data.name(a, Data.ATTR);
+      atts.addAttribute(uri(a, Data.ATTR), string(local(name)), string(name), CDATA,
+          string(data.text(a, false)));
+    }
+    final byte[] name = data.name(pre, Data.ELEM);
+    handler.startElement(uri(pre, Data.ELEM), string(local(name)), string(name), atts);
+    elems.push(pre);
+    nsps.add(ns);
+  }
+
+  /**
+   * Emits the end events of all open elements that do not contain the
+   * specified node.
+   * @param pre pre value of the next node
+   * @throws SAXException SAX exception
+   */
+  private void close(final int pre) throws SAXException {
+    while(elems.size() != 0) {
+      final int p = elems.peek();
+      if(pre < p + data.size(p, Data.ELEM)) break;
+      elems.pop();
+      final byte[] name = data.name(p, Data.ELEM);
+      handler.endElement(uri(p, Data.ELEM), string(local(name)), string(name));
+      final Atts ns = nsps.remove(nsps.size() - 1);
+      for(int n = 0; n < ns.size(); n++) handler.endPrefixMapping(string(ns.name(n)));
+    }
+  }
+
+  /**
+   * Returns all namespaces that are in scope of the specified element.
+   * @param pre pre value
+   * @return namespaces
+   */
+  private Atts scope(final int pre) {
+    final Atts ns = data.ns(pre);
+    for(int p = data.parent(pre, Data.ELEM); p >= 0 && data.kind(p) == Data.ELEM;
+        p = data.parent(p, Data.ELEM)) {
+      final Atts as = data.ns(p);
+      for(int a = 0; a < as.size(); a++) {
+        if(!declared(ns, as.name(a))) ns.add(as.name(a), as.string(a));
+      }
+    }
+    return ns;
+  }
+
+  /**
+   * Checks if the specified prefix has been declared.
+   * @param ns namespaces
+   * @param prefix prefix
+   * @return result of check
+   */
+  private static boolean declared(final Atts ns, final byte[] prefix) {
+    for(int n = 0; n < ns.size(); n++) {
+      if(eq(ns.name(n), prefix)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the namespace uri of an element or attribute.
+   * @param pre pre value
+   * @param kind node kind
+   * @return uri, or an empty string
+   */
+  private String uri(final int pre, final int kind) {
+    final int u = data.uri(pre, kind);
+    final byte[] uri = u == 0 ? null : data.nspaces.uri(u);
+    return uri == null ? "" : string(uri);
+  }
+}
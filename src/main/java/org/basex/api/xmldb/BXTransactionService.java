@@ -0,0 +1,70 @@
+package org.basex.api.xmldb;
+
+import org.xmldb.api.base.*;
+import org.xmldb.api.modules.*;
+
+/**
+ * Implementation of the TransactionService Interface for the XMLDB:API.
+ * Resources that are stored after a transaction has been started are parsed in
+ * parallel and inserted in a single update when the transaction is committed.
+ * Removals are not deferred.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class BXTransactionService implements TransactionService, BXXMLDBText {
+  /** Service constant. */
+  static final String TRANSACTION = "TransactionService";
+  /** Service constant. */
+  private static final String VERSION = "1.0";
+  /** Collection reference. */
+  private BXCollection coll;
+
+  /**
+   * Default constructor.
+   * @param c collection reference
+   */
+  BXTransactionService(final BXCollection c) {
+    coll = c;
+  }
+
+  @Override
+  public void begin() throws XMLDBException {
+    coll.begin();
+  }
+
+  @Override
+  public void commit() throws XMLDBException {
+    coll.commit();
+  }
+
+  @Override
+  public void rollback() throws XMLDBException {
+    coll.rollback();
+  }
+
+  @Override
+  public String getName() {
+    return TRANSACTION;
+  }
+
+  @Override
+  public String getVersion() {
+    return VERSION;
+  }
+
+  @Override
+  public void setCollection(final Collection c) {
+    coll = (BXCollection) c;
+  }
+
+  @Override
+  public String getProperty(final String nm) {
+    return null;
+  }
+
+  @Override
+  public void setProperty(final String nm, final String value) throws XMLDBException {
+    throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_PROP + nm);
+  }
+}
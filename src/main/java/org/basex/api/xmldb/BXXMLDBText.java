@@ -46,4 +46,12 @@ interface BXXMLDBText {
   String ERR_DOC = "Document ID cannot be retrieved from query result.";
   /** Error message. */
   String ERR_LOCK = "Database cannot be marked as 'updating'.";
+  /** Error message. */
+  String ERR_OPENED = "Database is opened by another collection: ";
+  /** Error message. */
+  String ERR_XUPDATE = "Invalid XUpdate modifications: ";
+  /** Error message. */
+  String ERR_LOGIN = "No credentials supplied for remote collection: ";
+  /** Error message. */
+  String ERR_MODIFIED = "Collection was modified while results were retrieved.";
 }
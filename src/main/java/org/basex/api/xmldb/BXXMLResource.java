@@ -3,6 +3,7 @@ package org.basex.api.xmldb;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.concurrent.locks.Lock;
 
 import javax.xml.parsers.*;
 
@@ -15,7 +16,7 @@ import org.basex.data.*;
 import org.basex.io.*;
 import org.basex.io.out.*;
 import org.basex.io.serial.*;
-import org.basex.query.*;
+import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.w3c.dom.*;
 import org.xml.sax.*;
@@ -35,7 +36,9 @@ final class BXXMLResource implements XMLResource, BXXMLDBText {
   private String id;
   /** Query result. */
   private Result result;
-  /** Cached content. */
+  /** Query item. */
+  private Item item;
+  /** Cached content (byte array, DOM document or main memory instance). */
   Object content;
   /** Data reference. */
   Data data;
@@ -64,6 +67,20 @@ final class BXXMLResource implements XMLResource, BXXMLDBText {
     pos = p;
   }
 
+  /**
+   * Constructor for lazily retrieved query results.
+   * @param it query item
+   * @param c Collection
+   */
+  BXXMLResource(final Item it, final Collection c) {
+    item = it;
+    coll = c;
+    if(it instanceof DBNode) {
+      data = ((DBNode) it).data;
+      pos = ((DBNode) it).pre;
+    }
+  }
+
   /**
    * Standard constructor.
    * @param d data reference
@@ -95,26 +112,61 @@ final class BXXMLResource implements XMLResource, BXXMLDBText {
 
   @Override
   public Object getContent() throws XMLDBException {
-    if(content == null) {
+    if(content == null || content instanceof Data) {
+      final Lock lock = lock();
       try {
         // serialize and cache content
         final ArrayOutput ao = new ArrayOutput();
         final Serializer ser = Serializer.get(ao);
-        if(data != null) {
+        if(content != null) {
+          // main memory instance will be stored as is: return serialized content
+          ser.serialize(new DBNode((Data) content, 0));
+          return string(ao.toArray());
+        } else if(data != null) {
           ser.serialize(new DBNode(data, pos));
         } else if(result != null) {
           result.serialize(ser, pos);
+        } else if(item != null) {
+          ser.serialize(item);
+        } else if(id != null && coll instanceof BXRemoteCollection) {
+          // remote document: retrieve contents on demand
+          ao.write(((BXRemoteCollection) coll).content(id));
         } else {
           return null;
         }
         content = ao.toArray();
       } catch(final IOException ex) {
         throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+      } finally {
+        if(lock != null) lock.unlock();
       }
     }
     return content instanceof byte[] ? string((byte[]) content) : content;
   }
 
+  /**
+   * Returns the contents of the resource as serialized XML.
+   * DOM documents and documents built via SAX are serialized.
+   * @return contents, or {@code null} if the resource has no contents
+   * @throws XMLDBException exception
+   */
+  byte[] serialize() throws XMLDBException {
+    if(content instanceof Document) {
+      try {
+        final String i = id == null ? "" : id;
+        final Data md = MemBuilder.build(i, new DOMWrapper((Document) content, i,
+            new Prop()));
+        final ArrayOutput ao = new ArrayOutput();
+        Serializer.get(ao).serialize(new DBNode(md, 0));
+        return ao.toArray();
+      } catch(final IOException ex) {
+        throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+      }
+    }
+    final Object c = getContent();
+    return c == null ? null : c instanceof byte[] ? (byte[]) c : token(c.toString());
+  }
+
   @Override
   public void setContent(final Object value) throws XMLDBException {
     // allow only strings, byte arrays and {@link File} instances
@@ -138,7 +190,7 @@ final class BXXMLResource implements XMLResource, BXXMLDBText {
   public String getDocumentId() throws XMLDBException {
     // throw exception if resource result from query; does not conform to the
     // specs, but many query results are not related to a document anymore
-    if(result != null)
+    if(result != null || item != null)
      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_DOC);
 
     // resource does not result from a query - return normal id
@@ -154,9 +206,23 @@ final class BXXMLResource implements XMLResource, BXXMLDBText {
   }
 
   @Override
-  public Node getContentAsDOM() {
-    if(!(content instanceof Node)) content = new BXDoc(new DBNode(data, pos));
-    return (Node) content;
+  public Node getContentAsDOM() throws XMLDBException {
+    if(content instanceof Data) return new BXDoc(new DBNode((Data) content, 0));
+    if(content instanceof Node) return (Node) content;
+    if(data != null) {
+      content = new BXDoc(new DBNode(data, pos));
+      return (Node) content;
+    }
+    // serialized contents, e.g. of remote documents: build main memory instance
+    final byte[] cont = serialize();
+    if(cont == null) return null;
+    try {
+      final String i = id == null ? "" : id;
+      return new BXDoc(new DBNode(MemBuilder.build(i,
+          Parser.singleParser(new IOContent(cont, i), new Prop(), "")), 0));
+    } catch(final IOException ex) {
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+    }
   }
 
   @Override
@@ -171,11 +237,29 @@ final class BXXMLResource implements XMLResource, BXXMLDBText {
   public void getContentAsSAX(final ContentHandler handler) throws XMLDBException {
     if(handler == null) throw new XMLDBException(ErrorCodes.INVALID_RESOURCE);
 
+    // database nodes: traverse node table
+    final boolean mem = content instanceof Data;
+    final Data d = mem ? (Data) content : content == null ? data : null;
+    final int p = mem ? 0 : pos;
+    if(d != null) {
+      final Lock lock = mem ? null : lock();
+      try {
+        if(d.kind(p) != Data.ATTR) {
+          new BXSAXEmitter(d, handler).emit(p);
+          return;
+        }
+      } catch(final SAXException ex) {
+        throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+      } finally {
+        if(lock != null) lock.unlock();
+      }
+    }
+
+    // other contents: parse serialized content
     final SAXParserFactory factory = SAXParserFactory.newInstance();
     factory.setNamespaceAware(true);
     factory.setValidating(false);
     try {
-      // caching should be avoided and replaced by a stream reader...
       final XMLReader reader = factory.newSAXParser().getXMLReader();
       reader.setContentHandler(handler);
       reader.parse(new InputSource(new StringReader(getContent().toString())));
@@ -184,12 +268,25 @@ final class BXXMLResource implements XMLResource, BXXMLDBText {
     }
   }
 
+  /**
+   * Acquires the read lock of the local collection the resource belongs to.
+   * @return acquired lock, or {@code null}
+   */
+  private Lock lock() {
+    if(!(coll instanceof BXCollection)) return null;
+    final Lock lock = ((BXCollection) coll).handle.lock.readLock();
+    lock.lock();
+    return lock;
+  }
+
   @Override
   public ContentHandler setContentAsSAX() throws XMLDBException {
-    // ..might be replaced by a custom SAX content handler in future
-    final MemBuilder mb = new MemBuilder("", Parser.emptyParser(new Prop()));
+    // documents are built with the properties of the local collection
+    final Context ctx = coll instanceof BXCollection ? ((BXCollection) coll).ctx : null;
+    final Prop prop = ctx != null ? ctx.prop : new Prop();
+    final MemBuilder mb = new MemBuilder(id == null ? "" : id, Parser.emptyParser(prop));
     mb.init();
-    return new BXSAXContentHandler(this, mb);
+    return new BXSAXContentHandler(this, mb, prop);
   }
 
   /** SAX parser. */
@@ -199,19 +296,31 @@ final class BXXMLResource implements XMLResource, BXXMLDBText {
 
     /**
      * Default constructor.
-     * @param mb memory builder
      * @param r resource
+     * @param mb memory builder
+     * @param prop database properties
      */
-    BXSAXContentHandler(final BXXMLResource r, final MemBuilder mb) {
-      super(mb, false, false);
+    BXSAXContentHandler(final BXXMLResource r, final MemBuilder mb, final Prop prop) {
+      super(mb, prop.is(Prop.CHOP), prop.is(Prop.STRIPNS));
       res = r;
     }
 
+    @Override
+    public void startDocument() throws SAXException {
+      try {
+        builder.startDoc(token(res.id == null ? "" : res.id));
+      } catch(final IOException ex) {
+        error(new BaseXException(ex));
+      }
+    }
+
     @Override
     public void endDocument() throws SAXException {
       try {
-        res.content = new DBNode(((MemBuilder) builder).data).serialize().toArray();
-      } catch(final QueryException ex) {
+        builder.endDoc();
+        // keep main memory instance; it will be inserted without being reparsed
+        res.content = ((MemBuilder) builder).data;
+      } catch(final IOException ex) {
         error(new BaseXException(ex));
       }
     }
@@ -0,0 +1,256 @@
+package org.basex.api.xmldb;
+
+import java.io.*;
+
+import javax.xml.parsers.*;
+
+import org.basex.util.list.*;
+import org.w3c.dom.*;
+import org.xml.sax.*;
+import org.xmldb.api.base.*;
+
+/**
+ * Translator of XUpdate modifications into XQuery Update expressions.
+ * All modifications of a document are combined into a single updating
+ * expression. Hence, in contrast to XUpdate, all selections refer to the
+ * unmodified document, and the updates are applied at once. Each selection is
+ * evaluated once and bound to a variable; the number of selected nodes is
+ * returned by the updating expression.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class BXXUpdate implements BXXMLDBText {
+  /** XUpdate namespace. */
+  private static final String URI = "http://www.xmldb.org/xupdate";
+  /** Variable bound to the target nodes. */
+  private static final String TARGET = "$xupdate-target";
+  /** Prefix of the variables bound to the selected nodes. */
+  private static final String SELECT = "$xupdate-select";
+
+  /** Namespace declarations. */
+  private final StringBuilder prolog = new StringBuilder();
+  /** Variable declarations, including the bound selections. */
+  private final StringBuilder vars = new StringBuilder();
+  /** Variables of the selections. */
+  private final StringList selects = new StringList();
+  /** Updating expressions. */
+  private final StringList updates = new StringList();
+
+  /**
+   * Constructor.
+   * @param commands XUpdate modifications
+   * @throws XMLDBException exception
+   */
+  BXXUpdate(final String commands) throws XMLDBException {
+    final Element root;
+    try {
+      final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+      dbf.setNamespaceAware(true);
+      root = dbf.newDocumentBuilder().parse(new InputSource(
+          new StringReader(commands))).getDocumentElement();
+    } catch(final Exception ex) {
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_XUPDATE + ex.getMessage());
+    }
+    if(!xupdate(root, "modifications")) throw error(root);
+
+    // declare namespaces of the root element
+    final NamedNodeMap atts = root.getAttributes();
+    for(int a = 0; a < atts.getLength(); a++) {
+      final Node att = atts.item(a);
+      if("xmlns".equals(att.getPrefix())) {
+        prolog.append("declare namespace ").append(att.getLocalName()).append(" = ");
+        prolog.append(string(att.getNodeValue())).append(';');
+      }
+    }
+    for(Node n = root.getFirstChild(); n != null; n = n.getNextSibling()) {
+      if(n.getNodeType() == Node.ELEMENT_NODE) command((Element) n);
+    }
+  }
+
+  /**
+   * Returns the updating query, which returns the number of selected nodes.
+   * @return query
+   */
+  String update() {
+    final StringList exprs = new StringList();
+    exprs.add("db:output(count((" + join(selects) + ")))");
+    for(int u = 0; u < updates.size(); u++) exprs.add(updates.get(u));
+    return prolog.toString() + vars + (vars.length() == 0 ? "" : "return ") +
+        '(' + join(exprs) + ')';
+  }
+
+  /**
+   * Translates a single command.
+   * @param cmd command
+   * @throws XMLDBException exception
+   */
+  private void command(final Element cmd) throws XMLDBException {
+    final String select = cmd.getAttribute("select");
+    if(xupdate(cmd, "variable")) {
+      vars.append("let $").append(cmd.getAttribute("name")).append(" := (");
+      vars.append(select).append(") ");
+      return;
+    }
+    if(select.isEmpty() || !URI.equals(cmd.getNamespaceURI())) throw error(cmd);
+
+    final String name = cmd.getLocalName();
+    final String upd;
+    if(name.equals("insert-before")) {
+      upd = "insert nodes " + content(cmd) + " before " + TARGET;
+    } else if(name.equals("insert-after")) {
+      upd = "insert nodes " + content(cmd) + " after " + TARGET;
+    } else if(name.equals("append")) {
+      final String child = cmd.getAttribute("child");
+      final String into = "insert nodes " + content(cmd) + " as last into " + TARGET;
+      if(child.isEmpty() || child.trim().equals("last()")) {
+        upd = into;
+      } else {
+        final String node = TARGET + "/node()[" + child + ']';
+        upd = "if(" + node + ") then insert nodes " + content(cmd) + " before " +
+          node + " else " + into;
+      }
+    } else if(name.equals("update")) {
+      upd = "replace value of node " + TARGET + " with " + string(cmd.getTextContent());
+    } else if(name.equals("remove")) {
+      upd = "delete nodes " + TARGET;
+    } else if(name.equals("rename")) {
+      upd = "rename node " + TARGET + " as " + string(cmd.getTextContent().trim());
+    } else {
+      throw error(cmd);
+    }
+    // bind selected nodes to a variable, which is referenced by the update
+    final String var = SELECT + selects.size();
+    vars.append("let ").append(var).append(" := (").append(select).append(") ");
+    selects.add(var);
+    updates.add("for " + TARGET + " in " + var + " return " + upd);
+  }
+
+  /**
+   * Returns an expression that constructs the content of a command.
+   * @param parent parent node
+   * @return expression
+   * @throws XMLDBException exception
+   */
+  private String content(final Node parent) throws XMLDBException {
+    final StringList sl = new StringList();
+    for(Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+      final String c = constructor(n);
+      if(c != null) sl.add(c);
+    }
+    return '(' + join(sl) + ')';
+  }
+
+  /**
+   * Returns a constructor for the specified node.
+   * @param node node
+   * @return expression, or {@code null} if the node is ignored
+   * @throws XMLDBException exception
+   */
+  private String constructor(final Node node) throws XMLDBException {
+    final short type = node.getNodeType();
+    if(type == Node.TEXT_NODE || type == Node.CDATA_SECTION_NODE) {
+      final String text = node.getNodeValue();
+      return text.trim().isEmpty() ? null : "text { " + string(text) + " }";
+    }
+    if(type == Node.COMMENT_NODE) {
+      return "comment { " + string(node.getNodeValue()) + " }";
+    }
+    if(type == Node.PROCESSING_INSTRUCTION_NODE) {
+      return "processing-instruction { " + string(node.getNodeName()) + " } { " +
+        string(node.getNodeValue()) + " }";
+    }
+    if(type != Node.ELEMENT_NODE) return null;
+
+    // literal element
+    final Element elem = (Element) node;
+    if(!URI.equals(elem.getNamespaceURI())) {
+      final StringList sl = new StringList();
+      final NamedNodeMap atts = elem.getAttributes();
+      for(int a = 0; a < atts.getLength(); a++) {
+        final Node att = atts.item(a);
+        final String nm = att.getNodeName();
+        if(nm.equals("xmlns") || nm.startsWith("xmlns:")) continue;
+        sl.add("attribute { " + qname(att.getNamespaceURI(), nm) + " } { " +
+          string(att.getNodeValue()) + " }");
+      }
+      final String cont = content(elem);
+      if(!cont.equals("()")) sl.add(cont);
+      return "element { " + qname(elem.getNamespaceURI(), elem.getNodeName()) + " } { " +
+        join(sl) + " }";
+    }
+
+    // XUpdate constructors
+    final String name = elem.getLocalName();
+    final String nm = elem.getAttribute("name");
+    final String text = string(elem.getTextContent());
+    if(name.equals("element") || name.equals("attribute")) {
+      // resolve namespace of prefixed names
+      final String ns = elem.getAttribute("namespace");
+      final int i = nm.indexOf(':');
+      final String uri = !ns.isEmpty() || i == -1 ? ns :
+        elem.lookupNamespaceURI(nm.substring(0, i));
+      return name + " { " + qname(uri, nm) + " } { " +
+        (name.equals("element") ? content(elem) : text) + " }";
+    }
+    if(name.equals("text") || name.equals("cdata")) return "text { " + text + " }";
+    if(name.equals("comment")) return "comment { " + text + " }";
+    if(name.equals("processing-instruction"))
+      return "processing-instruction { " + string(nm) + " } { " + text + " }";
+    if(name.equals("value-of")) return '(' + elem.getAttribute("select") + ')';
+    throw error(elem);
+  }
+
+  /**
+   * Returns an expression that creates a QName.
+   * @param uri namespace uri (may be {@code null} or empty)
+   * @param name name
+   * @return expression
+   */
+  private static String qname(final String uri, final String name) {
+    return "QName(" + string(uri == null ? "" : uri) + ", " + string(name) + ')';
+  }
+
+  /**
+   * Returns a string literal.
+   * @param str string
+   * @return string literal
+   */
+  private static String string(final String str) {
+    return '"' + str.replace("&", "&amp;").replace("\"", "\"\"") + '"';
+  }
+
+  /**
+   * Joins the specified expressions.
+   * @param exprs expressions
+   * @return comma-separated expressions
+   */
+  private static String join(final StringList exprs) {
+    final StringBuilder sb = new StringBuilder();
+    for(int e = 0; e < exprs.size(); e++) {
+      if(e != 0) sb.append(", ");
+      sb.append(exprs.get(e));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Checks if the specified element is an XUpdate element with the specified name.
+   * @param elem element
+   * @param name local name
+   * @return result of check
+   */
+  private static boolean xupdate(final Element elem, final String name) {
+    return URI.equals(elem.getNamespaceURI()) && name.equals(elem.getLocalName());
+  }
+
+  /**
+   * Returns an error for an unexpected element.
+   * @param elem element
+   * @return exception
+   */
+  private static XMLDBException error(final Element elem) {
+    return new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_XUPDATE + '<' +
+        elem.getNodeName() + "> is not supported.");
+  }
+}
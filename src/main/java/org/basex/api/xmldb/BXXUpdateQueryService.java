@@ -0,0 +1,114 @@
+package org.basex.api.xmldb;
+
+import java.util.concurrent.locks.Lock;
+
+import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.xmldb.api.base.*;
+import org.xmldb.api.modules.*;
+
+/**
+ * Implementation of the XUpdateQueryService Interface for the XMLDB:API.
+ * The modifications are translated to XQuery Update and applied in place,
+ * so documents need not be stored again as a whole. All modifications of a
+ * single call are performed in one update.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class BXXUpdateQueryService implements XUpdateQueryService, BXXMLDBText {
+  /** Service constant. */
+  static final String XUPDATE = "XUpdateQueryService";
+  /** Service constant. */
+  private static final String VERSION = "1.0";
+  /** Collection reference. */
+  private BXCollection coll;
+
+  /**
+   * Default constructor.
+   * @param c collection reference
+   */
+  BXXUpdateQueryService(final BXCollection c) {
+    coll = c;
+  }
+
+  @Override
+  public long update(final String commands) throws XMLDBException {
+    return update(null, commands);
+  }
+
+  @Override
+  public long updateResource(final String id, final String commands)
+      throws XMLDBException {
+    if(id == null) throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_RES + id);
+    return update(id, commands);
+  }
+
+  @Override
+  public String getName() {
+    return XUPDATE;
+  }
+
+  @Override
+  public String getVersion() {
+    return VERSION;
+  }
+
+  @Override
+  public void setCollection(final Collection c) {
+    coll = (BXCollection) c;
+  }
+
+  @Override
+  public String getProperty(final String nm) {
+    return null;
+  }
+
+  @Override
+  public void setProperty(final String nm, final String value) throws XMLDBException {
+    throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_PROP + nm);
+  }
+
+  /**
+   * Applies the specified modifications. As in {@link BXQueryService}, the query
+   * is registered before the write lock of the collection is acquired, so both
+   * locks are always requested in the same order.
+   * @param id resource id ({@code null}: all resources)
+   * @param commands XUpdate modifications
+   * @return number of selected nodes
+   * @throws XMLDBException exception
+   */
+  private long update(final String id, final String commands) throws XMLDBException {
+    final BXXUpdate xu = new BXXUpdate(commands);
+    final QueryProcessor qp = new QueryProcessor(xu.update(), coll.ctx);
+    try {
+      coll.ctx.register(qp);
+      final Lock lock = coll.handle.lock.writeLock();
+      lock.lock();
+      try {
+        final Nodes nodes;
+        if(id == null) {
+          nodes = coll.current();
+        } else {
+          final BXXMLResource xml = coll.getResource(id);
+          if(xml == null) throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_RES + id);
+          nodes = new Nodes(xml.pos, xml.data);
+        }
+        // the updating query returns the number of selected nodes
+        final Item it = qp.context(nodes).iter().next();
+        final long count = it == null ? 0 : Token.toLong(it.string(null));
+        if(count != 0) coll.updated();
+        return count;
+      } finally {
+        lock.unlock();
+      }
+    } catch(final QueryException ex) {
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+    } finally {
+      qp.close();
+      coll.ctx.unregister(qp);
+    }
+  }
+}
@@ -7,6 +7,7 @@ import static org.basex.io.MimeTypes.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.net.*;
 import java.util.*;
 import java.util.Map.Entry;
 
@@ -15,8 +16,11 @@ import javax.servlet.http.*;
 
 import org.basex.*;
 import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.http.restxq.*;
 import org.basex.io.*;
 import org.basex.io.serial.*;
+import org.basex.query.*;
 import org.basex.server.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
@@ -32,6 +36,10 @@ public final class HTTPContext {
   private static Context context;
   /** Initialization flag. */
   private static boolean init;
+  /** Readiness flag (set after the services have been warmed up). */
+  private static volatile boolean ready;
+  /** Errors that occurred during the warm-up. */
+  private static final StringList ERRORS = new StringList();
 
   /** Servlet request. */
   public final HttpServletRequest req;
@@ -49,6 +57,12 @@ public final class HTTPContext {
 
   /** Segments. */
   private final String[] segments;
+  /** Request path, against which relative forward targets are resolved. */
+  private final String path;
+  /** Accepted media ranges (lazily parsed). */
+  private MediaType[] accepts;
+  /** Media type of the request (lazily parsed). */
+  private MediaType requestType;
   /** Current user session. */
   private LocalSession session;
   /** User name. */
@@ -78,6 +92,7 @@ public final class HTTPContext {
     // set UTF8 as default encoding (can be overwritten)
     res.setCharacterEncoding(UTF8);
     segments = toSegments(req.getPathInfo());
+    path = req.getRequestURI();
 
     final MainProp mprop = context().mprop;
     user = mprop.get(MainProp.USER);
@@ -98,6 +113,53 @@ public final class HTTPContext {
     }
   }
 
+  /**
+   * Constructor for internally forwarded requests.
+   * @param http HTTP context of the original request
+   * @param pth path of the target request
+   * @param info path info of the target request
+   */
+  private HTTPContext(final HTTPContext http, final String pth, final String info) {
+    req = http.req;
+    res = http.res;
+    method = http.method;
+    serialization = http.serialization;
+    wrapping = http.wrapping;
+    segments = toSegments(info);
+    path = pth;
+    accepts = http.accepts;
+    requestType = http.requestType;
+    session = http.session;
+    user = http.user;
+    pass = http.pass;
+  }
+
+  /**
+   * Returns a context for forwarding the request to the specified target within
+   * the current servlet. The new context shares the request, response and session
+   * of this context. {@code null} is returned if the target is located outside the
+   * servlet or contains a query string. Relative targets are resolved against the
+   * path of this context, which, for chained forwards, is the previous target.
+   * @param target target path (absolute, or relative to the current path)
+   * @return new context, or {@code null}
+   */
+  public HTTPContext forward(final String target) {
+    if(target.indexOf('?') != -1) return null;
+    final String pth;
+    try {
+      pth = new URI(path).resolve(target).getPath();
+    } catch(final URISyntaxException ex) {
+      return null;
+    } catch(final IllegalArgumentException ex) {
+      return null;
+    }
+    final String servlet = req.getContextPath() + req.getServletPath();
+    if(pth == null || !pth.startsWith(servlet)) return null;
+    final String info = pth.substring(servlet.length());
+    return info.isEmpty() || info.charAt(0) == '/' ?
+      new HTTPContext(this, pth, info) : null;
+  }
+
   /**
    * Returns all query parameters.
    * @return parameters
@@ -193,16 +255,26 @@ public final class HTTPContext {
   }
 
   /**
-   * Returns an array with all accepted content types.
-   * if the root directory was specified.
-   * @return database
+   * Returns all accepted media ranges. The {@code Accept} header is only parsed once.
+   * @return media ranges
+   */
+  public MediaType[] accepts() {
+    if(accepts == null) accepts = MediaType.list(req.getHeader(ACCEPT));
+    return accepts;
+  }
+
+  /**
+   * Returns the media type of the request, or {@code null} if no content type
+   * has been specified. The {@code Content-Type} header is only parsed once.
+   * @return media type
    */
-  public String[] produces() {
-    final String[] acc = req.getHeader("Accept").split("\\s*,\\s*");
-    for(int a = 0; a < acc.length; a++) {
-      if(acc[a].indexOf(';') != -1) acc[a] = acc[a].replaceAll("\\w*;.*", "");
+  public MediaType requestType() {
+    if(requestType == null) {
+      final String ct = req.getContentType();
+      if(ct == null) return null;
+      requestType = MediaType.get(ct);
     }
-    return acc;
+    return requestType;
   }
 
   /**
@@ -229,6 +301,17 @@ public final class HTTPContext {
     pass = p;
   }
 
+  /**
+   * Returns the name of the current user. A session will be opened if necessary,
+   * so the user is guaranteed to be authenticated.
+   * @return user name
+   * @throws IOException I/O exception
+   */
+  public String user() throws IOException {
+    session();
+    return user;
+  }
+
   /**
    * Creates a new {@link LocalSession} instance.
    * @return database session
@@ -348,6 +431,33 @@ public final class HTTPContext {
 
     // start server instance
     if(!context.mprop.is(MainProp.HTTPLOCAL)) new BaseXServer(context);
+
+    // warm up services before requests are accepted
+    warmup(sc, webapp);
+  }
+
+  /**
+   * Indicates if the HTTP services have been initialized and warmed up.
+   * @return result of check
+   */
+  public static boolean ready() {
+    return ready;
+  }
+
+  /**
+   * Returns the errors that occurred while the services were warmed up.
+   * @return error messages, or {@code null} if all steps were successful
+   */
+  public static String warmupErrors() {
+    synchronized(ERRORS) {
+      if(ERRORS.size() == 0) return null;
+      final StringBuilder sb = new StringBuilder();
+      for(int e = 0; e < ERRORS.size(); e++) {
+        if(e != 0) sb.append("; ");
+        sb.append(ERRORS.get(e));
+      }
+      return sb.toString();
+    }
   }
 
   /**
@@ -376,6 +486,84 @@ public final class HTTPContext {
 
   // PRIVATE METHODS ====================================================================
 
+  /**
+   * Warms up the HTTP services, as specified in the initial servlet context.
+   * @param sc servlet context
+   * @param webapp web application path
+   */
+  private static void warmup(final ServletContext sc, final String webapp) {
+    warmup(Boolean.parseBoolean(sc.getInitParameter(WARMUP)),
+        sc.getInitParameter(WARMUPDBS), sc.getInitParameter(WARMUPPATH), webapp);
+  }
+
+  /**
+   * Warms up the HTTP services: parses all RESTXQ modules, opens databases and
+   * evaluates queries. Opened databases will be kept open until the database
+   * context is closed. All steps are performed, even if a previous step has
+   * failed. The services are reported as not ready until all steps have been
+   * performed, and errors of a previous warm-up are discarded.
+   * @param restxq parse RESTXQ modules
+   * @param dbs comma-separated list of databases to be opened (may be {@code null})
+   * @param path query file or directory to be evaluated (may be {@code null})
+   * @param webapp web application path, against which relative paths are resolved
+   */
+  public static synchronized void warmup(final boolean restxq, final String dbs,
+      final String path, final String webapp) {
+
+    ready = false;
+    synchronized(ERRORS) {
+      ERRORS.reset();
+    }
+
+    // parse RESTXQ modules
+    if(restxq) {
+      try {
+        RestXqServlet.warmup(context);
+      } catch(final QueryException ex) {
+        failed(ex);
+      }
+    }
+
+    // open databases
+    if(dbs != null) {
+      for(final String db : dbs.trim().split("\\s*,\\s*")) {
+        if(db.isEmpty()) continue;
+        try {
+          Open.open(db, context);
+        } catch(final IOException ex) {
+          failed(ex);
+        }
+      }
+    }
+
+    // evaluate queries
+    if(path != null) {
+      final IOFile io = new File(path).isAbsolute() ? new IOFile(path) :
+        new IOFile(webapp, path);
+      for(final IOFile file : io.isDir() ? io.children() : new IOFile[] { io }) {
+        if(!file.path().endsWith(IO.XQSUFFIX)) continue;
+        try {
+          new XQuery(string(file.read())).execute(context);
+        } catch(final IOException ex) {
+          failed(ex);
+        }
+      }
+    }
+    ready = true;
+  }
+
+  /**
+   * Registers an error that occurred during the warm-up.
+   * @param ex exception
+   */
+  private static void failed(final Exception ex) {
+    final String msg = Util.message(ex);
+    Util.errln(Util.info(HTTPErr.WARMUP_FAILED_X.desc, msg));
+    synchronized(ERRORS) {
+      ERRORS.add(msg);
+    }
+  }
+
   /**
    * Returns a string with the remote user address.
    * @return user address
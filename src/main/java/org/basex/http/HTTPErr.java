@@ -29,7 +29,12 @@ public enum HTTPErr {
   NO_XQUERY(SC_NOT_FOUND, "No function found that matches the request."),
 
   /** Error 501, "Method not supported: %.". */
-  NOT_IMPLEMENTED_X(SC_NOT_IMPLEMENTED, "Method not supported: %.");
+  NOT_IMPLEMENTED_X(SC_NOT_IMPLEMENTED, "Method not supported: %."),
+
+  /** Error 503, "Services are not ready yet.". */
+  NOT_READY(SC_SERVICE_UNAVAILABLE, "Services are not ready yet."),
+  /** Error 503, "Warm-up failed: %". */
+  WARMUP_FAILED_X(SC_SERVICE_UNAVAILABLE, "Warm-up failed: %");
 
   /** Status code. */
   final int code;
@@ -1,5 +1,7 @@
 package org.basex.http;
 
+import org.basex.core.*;
+
 /**
  * This class assembles texts which are used in the HTTP classes.
  *
@@ -11,10 +13,22 @@ public interface HTTPText {
   String WWW_AUTHENTICATE = "WWW-Authenticate";
   /** HTTP header: Authorization. */
   String AUTHORIZATION = "Authorization";
+  /** HTTP header: Accept. */
+  String ACCEPT = "Accept";
   /** HTTP basic authentication. */
   String BASIC = "Basic";
   /** Location string. */
   String LOCATION = "location";
+  /** HTTP header: ETag. */
+  String ETAG = "ETag";
+  /** HTTP header: If-None-Match. */
+  String IF_NONE_MATCH = "If-None-Match";
+  /** HTTP header: If-Match. */
+  String IF_MATCH = "If-Match";
+  /** HTTP header: Accept-Ranges. */
+  String ACCEPT_RANGES = "Accept-Ranges";
+  /** Range unit. */
+  String BYTES = "bytes";
 
   /** HTTP String. */
   String HTTP = "HTTP";
@@ -27,6 +41,13 @@ public interface HTTPText {
   /** Application.wadl file. */
   String WADL = "application.wadl";
 
+  /** Context parameter: parse RESTXQ modules at startup. */
+  String WARMUP = Prop.DBPREFIX + "warmup";
+  /** Context parameter: databases to be opened at startup. */
+  String WARMUPDBS = Prop.DBPREFIX + "warmupdbs";
+  /** Context parameter: query file or directory to be evaluated at startup. */
+  String WARMUPPATH = Prop.DBPREFIX + "warmuppath";
+
   /** Error: no password. */
   String NOPASSWD = "No username/password specified.";
   /** Error: unsupported authorization method. */
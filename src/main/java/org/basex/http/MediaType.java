@@ -0,0 +1,134 @@
+package org.basex.http;
+
+import java.util.*;
+
+/**
+ * This class represents a single media type or media range, as used in the
+ * {@code Accept} and {@code Content-Type} headers, along with its quality factor.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class MediaType {
+  /** Wildcard. */
+  private static final String WILDCARD = "*";
+  /** Media range that matches all types. */
+  private static final MediaType ALL = new MediaType(WILDCARD, WILDCARD, 1);
+
+  /** Main type ({@code "*"} for wildcards, {@code null} if the type is invalid). */
+  public final String type;
+  /** Subtype ({@code "*"} for wildcards, {@code null} if the type is invalid). */
+  public final String subtype;
+  /** Quality factor (between {@code 0} and {@code 1}). */
+  public final double quality;
+
+  /**
+   * Constructor.
+   * @param t main type
+   * @param s subtype
+   * @param q quality factor
+   */
+  private MediaType(final String t, final String s, final double q) {
+    type = t;
+    subtype = s;
+    quality = q;
+  }
+
+  /**
+   * Parses a single media type, which may be followed by parameters.
+   * Only the quality factor ({@code q}) is considered.
+   * @param string media type string
+   * @return media type
+   */
+  public static MediaType get(final String string) {
+    final String[] params = string.split(";");
+    double q = 1;
+    for(int p = 1; p < params.length; p++) {
+      final String[] kv = params[p].split("=", 2);
+      if(kv.length < 2 || !kv[0].trim().equals("q")) continue;
+      try {
+        q = Math.max(0, Math.min(1, Double.parseDouble(kv[1].trim())));
+      } catch(final NumberFormatException ex) {
+        // invalid quality factors are ignored
+      }
+    }
+    final String mt = params[0].trim().toLowerCase(Locale.ENGLISH);
+    // legacy clients send a single asterisk
+    if(mt.equals(WILDCARD)) return new MediaType(WILDCARD, WILDCARD, q);
+    final int i = mt.indexOf('/');
+    return i <= 0 || i == mt.length() - 1 ? new MediaType(null, null, q) :
+      new MediaType(mt.substring(0, i), mt.substring(i + 1), q);
+  }
+
+  /**
+   * Parses a comma-separated list of media ranges. A range that matches all types
+   * is returned if the string is {@code null} or empty.
+   * @param string list of media ranges
+   * @return media ranges
+   */
+  public static MediaType[] list(final String string) {
+    if(string == null || string.trim().isEmpty()) return new MediaType[] { ALL };
+    final String[] types = string.split(",");
+    final int ts = types.length;
+    final MediaType[] list = new MediaType[ts];
+    for(int t = 0; t < ts; t++) list[t] = get(types[t]);
+    return list;
+  }
+
+  /**
+   * Checks if this type matches the specified type.
+   * Wildcards of both types are considered.
+   * @param mt media type to be compared
+   * @return result of check
+   */
+  public boolean matches(final MediaType mt) {
+    return type != null && mt.type != null &&
+      (type.equals(WILDCARD) || mt.type.equals(WILDCARD) || type.equals(mt.type)) &&
+      (subtype.equals(WILDCARD) || mt.subtype.equals(WILDCARD) ||
+       subtype.equals(mt.subtype));
+  }
+
+  /**
+   * Checks if the main type or the subtype is a wildcard.
+   * @return result of check
+   */
+  public boolean wildcard() {
+    return specificity() < 2;
+  }
+
+  /**
+   * Returns the quality factor of this type, which is determined by the most
+   * specific of the specified media ranges that matches this type.
+   * @param ranges media ranges
+   * @return quality factor, or {@code 0} if no range matches
+   */
+  public double quality(final MediaType[] ranges) {
+    double q = 0;
+    int spec = -1;
+    for(final MediaType mr : ranges) {
+      if(!matches(mr)) continue;
+      final int s = mr.specificity();
+      if(s > spec) {
+        spec = s;
+        q = mr.quality;
+      } else if(s == spec) {
+        q = Math.max(q, mr.quality);
+      }
+    }
+    return q;
+  }
+
+  /**
+   * Returns the specificity of this type.
+   * @return {@code 0} if both types are wildcards, {@code 1} if the subtype is
+   * a wildcard, {@code 2} otherwise
+   */
+  private int specificity() {
+    return WILDCARD.equals(type) ? 0 : WILDCARD.equals(subtype) ? 1 : 2;
+  }
+
+  @Override
+  public String toString() {
+    return type + "/" + subtype;
+  }
+}
@@ -0,0 +1,26 @@
+package org.basex.http.health;
+
+import static org.basex.util.Token.*;
+
+import org.basex.http.*;
+import org.basex.io.*;
+
+/**
+ * <p>This servlet reports the readiness of the HTTP services. It returns status
+ * code 200 as soon as the services have been warmed up, and 503 (service
+ * unavailable) before, or if a warm-up step has failed. No authentication is
+ * required.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class HealthServlet extends BaseXServlet {
+  @Override
+  protected void run(final HTTPContext http) throws Exception {
+    if(!HTTPContext.ready()) HTTPErr.NOT_READY.thrw();
+    final String errors = HTTPContext.warmupErrors();
+    if(errors != null) HTTPErr.WARMUP_FAILED_X.thrw(errors);
+    http.res.setContentType(MimeTypes.TEXT_PLAIN);
+    http.res.getOutputStream().write(token("OK"));
+  }
+}
@@ -60,9 +60,9 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
   /** Query context. */
   private final QueryContext context;
   /** Consumed media types. */
-  private final StringList consumes = new StringList();
+  private final ArrayList<MediaType> consumes = new ArrayList<MediaType>();
   /** Returned media types. */
-  private final StringList produces = new StringList();
+  private final ArrayList<MediaType> produces = new ArrayList<MediaType>();
   /** Post/Put variable. */
   private QNm requestBody;
 
@@ -119,10 +119,10 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
           }
         } else if(eq(CONSUMES, local)) {
           // annotation "consumes"
-          strings(value, name, consumes);
+          mediaTypes(value, name, consumes);
         } else if(eq(PRODUCES, local)) {
           // annotation "produces"
-          strings(value, name, produces);
+          mediaTypes(value, name, produces);
         } else if(eq(QUERY_PARAM, local)) {
           // annotation "query-param"
           queryParams.add(param(value, name));
@@ -176,7 +176,41 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
   boolean matches(final HTTPContext http) {
     // check method, path, consumed and produced media type
     return methods.contains(http.method) && pathMatches(http) &&
-        consumes(http) && produces(http);
+        consumes(http) && quality(http) > 0;
+  }
+
+  /**
+   * Returns the quality factor of the best media type produced by this function,
+   * based on the media ranges accepted by the client.
+   * @param http http context
+   * @return quality factor ({@code 1} if no media types are specified)
+   */
+  double quality(final HTTPContext http) {
+    // return 1 if no type is given
+    if(produces.isEmpty()) return 1;
+    double q = 0;
+    final MediaType[] accepts = http.accepts();
+    for(final MediaType p : produces) q = Math.max(q, p.quality(accepts));
+    return q;
+  }
+
+  /**
+   * Returns the produced media type that is preferred by the client.
+   * @param http http context
+   * @return media type, or {@code null} if no concrete type can be chosen
+   */
+  MediaType produced(final HTTPContext http) {
+    MediaType mt = null;
+    double q = 0;
+    final MediaType[] accepts = http.accepts();
+    for(final MediaType p : produces) {
+      final double pq = p.quality(accepts);
+      if(pq > q && !p.wildcard()) {
+        mt = p;
+        q = pq;
+      }
+    }
+    return mt;
   }
 
   /**
@@ -317,28 +351,11 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
     // return true if no type is given
     if(consumes.isEmpty()) return true;
     // return true if no content type is specified by the user
-    final String ct = http.contentType();
+    final MediaType ct = http.requestType();
     if(ct == null) return true;
     // check if any combination matches
-    for(final String c : consumes) {
-      if(MimeTypes.matches(c, ct)) return true;
-    }
-    return false;
-  }
-
-  /**
-   * Checks if the produced content type matches.
-   * @param http http context
-   * @return result of check
-   */
-  private boolean produces(final HTTPContext http) {
-    // return true if no type is given
-    if(produces.isEmpty()) return true;
-    // check if any combination matches
-    for(final String pr : http.produces()) {
-      for(final String p : produces) {
-        if(MimeTypes.matches(p, pr)) return true;
-      }
+    for(final MediaType c : consumes) {
+      if(c.matches(ct)) return true;
     }
     return false;
   }
@@ -395,17 +412,17 @@ final class RestXqFunction implements Comparable<RestXqFunction> {
   }
 
   /**
-   * Adds items to the specified list.
+   * Adds media types to the specified list.
    * @param value value
    * @param name name
-   * @param list list to add values to
+   * @param list list to add media types to
    * @throws QueryException HTTP exception
    */
-  private void strings(final Value value, final QNm name, final StringList list)
-      throws QueryException {
+  private void mediaTypes(final Value value, final QNm name,
+      final ArrayList<MediaType> list) throws QueryException {
 
     final long vs = value.size();
-    for(int v = 0; v < vs; v++) list.add(toString(value.itemAt(v), name));
+    for(int v = 0; v < vs; v++) list.add(MediaType.get(toString(value.itemAt(v), name)));
   }
 
   /**
@@ -1,15 +1,21 @@
 package org.basex.http.restxq;
 
+import static org.basex.http.restxq.RestXqText.*;
 import static org.basex.query.util.Err.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
 import java.util.*;
 
+import org.basex.core.*;
 import org.basex.http.*;
 import org.basex.io.*;
 import org.basex.query.*;
 import org.basex.query.func.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
 
 /**
  * This class caches information on a single XQuery module with RESTXQ annotations.
@@ -18,12 +24,17 @@ import org.basex.query.func.*;
  * @author Christian Gruen
  */
 final class RestXqModule {
+  /** QName of the static annotation. */
+  private static final QNm Q_STATIC = new QNm(STATIC, QueryText.RESTXQURI);
+
   /** Supported methods. */
   final ArrayList<RestXqFunction> functions = new ArrayList<RestXqFunction>();
   /** File reference. */
   final IOFile file;
   /** Parsing timestamp. */
   long time;
+  /** Values of static variables, computed once per module version. */
+  private final HashMap<String, Value> statics = new HashMap<String, Value>();
 
   /**
    * Constructor.
@@ -36,15 +47,19 @@ final class RestXqModule {
 
   /**
    * Checks the module for RESTFful annotations.
-   * @param http http context
+   * @param ctx database context
    * @return {@code true} if module contains relevant annotations
    * @throws QueryException query exception
    */
-  boolean analyze(final HTTPContext http) throws QueryException {
+  boolean analyze(final Context ctx) throws QueryException {
     functions.clear();
+    // discard values of static variables from an old module version
+    synchronized(statics) {
+      statics.clear();
+    }
 
     // loop through all functions
-    final QueryContext qc = parse(http);
+    final QueryContext qc = parse(ctx);
     try {
       for(final UserFunc uf : qc.funcs.funcs()) {
         // consider only functions that are defined in this module
@@ -92,8 +107,10 @@ final class RestXqModule {
    */
   void process(final HTTPContext http, final RestXqFunction func) throws Exception {
     // create new XQuery instance
-    final QueryContext qc = parse(http);
+    final QueryContext qc = parse(http.context());
     try {
+      // assign values of static variables that have already been computed
+      bindStatics(qc);
       // loop through all functions
       for(final UserFunc uf : qc.funcs.funcs()) {
         // compare input info
@@ -110,16 +127,76 @@ final class RestXqModule {
     }
   }
 
+  /**
+   * Caches the values of all static variables that have been evaluated by the
+   * current request and that have not been cached yet. Variables that were not
+   * referenced are skipped, so they will never be evaluated by this method.
+   * Nodes are copied to main memory, as the resources of the query context
+   * will be closed after the request has been processed.
+   * @param qc query context
+   * @throws QueryException query exception
+   */
+  void cacheStatics(final QueryContext qc) throws QueryException {
+    for(final Var var : statics(qc)) {
+      final Value value = var.value;
+      if(value == null) continue;
+      final String name = string(var.name.string());
+      synchronized(statics) {
+        if(statics.containsKey(name)) continue;
+      }
+      final ValueBuilder vb = new ValueBuilder();
+      final long vs = value.size();
+      for(long v = 0; v < vs; v++) {
+        final Item it = value.itemAt(v);
+        vb.add(it instanceof ANode ? ((ANode) it).dbCopy(qc.context.prop) : it);
+      }
+      synchronized(statics) {
+        statics.put(name, vb.value());
+      }
+    }
+  }
+
   // PRIVATE METHODS ====================================================================
 
+  /**
+   * Binds the cached values of static variables.
+   * @param qc query context
+   * @throws QueryException query exception
+   */
+  private void bindStatics(final QueryContext qc) throws QueryException {
+    synchronized(statics) {
+      if(statics.isEmpty()) return;
+      for(final Var var : statics(qc)) {
+        final Value value = statics.get(string(var.name.string()));
+        if(value != null) var.bind(value, qc);
+      }
+    }
+  }
+
+  /**
+   * Returns all global variables that are declared with the {@code %rest:static}
+   * annotation.
+   * @param qc query context
+   * @return variables
+   */
+  private static ArrayList<Var> statics(final QueryContext qc) {
+    final ArrayList<Var> list = new ArrayList<Var>();
+    final VarStack globals = qc.vars.globals();
+    for(int g = 0; g < globals.size; g++) {
+      final Var var = globals.vars[g];
+      if(var.ann.contains(Q_STATIC)) list.add(var);
+    }
+    return list;
+  }
+
   /**
    * Parses the module and returns the query context.
-   * @param http http context
+   * @param ctx database context
    * @return query context
    * @throws QueryException query exception
    */
-  private QueryContext parse(final HTTPContext http) throws QueryException {
-    final QueryContext qc = new QueryContext(http.context());
+  private QueryContext parse(final Context ctx) throws QueryException {
+    final QueryContext qc = new QueryContext(ctx);
     try {
       qc.module(string(file.read()), file.path());
       return qc;
@@ -4,6 +4,7 @@ import static org.basex.http.restxq.RestXqText.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.http.*;
@@ -23,6 +24,10 @@ final class RestXqModules {
 
   /** Module cache. */
   private HashMap<String, RestXqModule> modules = new HashMap<String, RestXqModule>();
+  /** WADL cache. */
+  private final RestXqWadl wadl = new RestXqWadl();
+  /** Version of the module cache (incremented whenever modules are changed). */
+  private int version;
   /** RESTXQ path. */
   private IOFile restxq;
   /** Private constructor. */
@@ -44,7 +49,7 @@ final class RestXqModules {
    */
   synchronized void wadl(final HTTPContext http) throws QueryException, IOException {
     analyze(http);
-    new RestXqWadl().create(http, modules);
+    wadl.create(http, modules, version);
   }
 
   /**
@@ -66,51 +71,136 @@ final class RestXqModules {
       // sort by specifity
       Collections.sort(list);
       first = list.get(0);
-      // disallow more than one path with the same specifity
       if(first.compareTo(list.get(1)) == 0) {
-        final TokenBuilder tb = new TokenBuilder();
+        // choose functions with the best quality factor for the accepted media types
+        final ArrayList<RestXqFunction> best = new ArrayList<RestXqFunction>();
+        double q = 0;
         for(final RestXqFunction rxf : list) {
           if(first.compareTo(rxf) != 0) break;
-          tb.add(Prop.NL).add(rxf.function.info.toString());
+          final double rq = rxf.quality(http);
+          if(rq > q) {
+            best.clear();
+            q = rq;
+          }
+          if(rq == q) best.add(rxf);
+        }
+        first = best.get(0);
+        // disallow more than one path with the same specifity
+        if(best.size() > 1) {
+          final TokenBuilder tb = new TokenBuilder();
+          for(final RestXqFunction rxf : best) {
+            tb.add(Prop.NL).add(rxf.function.info.toString());
+          }
+          first.error(PATH_CONFLICT, first.path, tb);
         }
-        first.error(PATH_CONFLICT, first.path, tb);
       }
     }
     // choose most specific function
     return first;
   }
 
+  /**
+   * Parses all modules in the RESTXQ directory in parallel, and replaces the
+   * module cache.
+   * @param ctx database context
+   * @throws QueryException query exception
+   */
+  synchronized void init(final Context ctx) throws QueryException {
+    final ArrayList<IOFile> files = new ArrayList<IOFile>();
+    files(directory(ctx), files);
+
+    final ExecutorService pool = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors());
+    final ArrayList<RestXqModule> mods = new ArrayList<RestXqModule>();
+    final ArrayList<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+    try {
+      for(final IOFile file : files) {
+        final RestXqModule module = new RestXqModule(file);
+        mods.add(module);
+        results.add(pool.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws QueryException {
+            return module.analyze(ctx);
+          }
+        }));
+      }
+      // add modules that contain annotations
+      final HashMap<String, RestXqModule> cache = new HashMap<String, RestXqModule>();
+      final int ms = mods.size();
+      for(int m = 0; m < ms; m++) {
+        if(results.get(m).get()) cache.put(mods.get(m).file.path(), mods.get(m));
+      }
+      modules = cache;
+      version++;
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof QueryException) throw (QueryException) th;
+      throw Util.notexpected(th);
+    } catch(final InterruptedException ex) {
+      throw Util.notexpected(ex);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   /**
    * Updates the module cache. Parses new modules and discards obsolete ones.
    * @param http http context
    * @throws QueryException query exception
    */
   private void analyze(final HTTPContext http) throws QueryException {
+    // create new cache
+    final HashMap<String, RestXqModule> cache = new HashMap<String, RestXqModule>();
+    final boolean changed = analyze(http.context(), directory(http.context()), cache);
+    if(changed || cache.size() != modules.size()) version++;
+    modules = cache;
+  }
+
+  /**
+   * Returns the RESTXQ directory.
+   * @param ctx database context
+   * @return directory
+   */
+  private IOFile directory(final Context ctx) {
     // initialize RESTXQ directory (may be relative against WEBPATH)
     if(restxq == null) {
-      final File fl = new File(http.context().mprop.get(MainProp.RESTXQPATH));
+      final File fl = new File(ctx.mprop.get(MainProp.RESTXQPATH));
       restxq = fl.isAbsolute() ? new IOFile(fl) :
-        new IOFile(http.context().mprop.get(MainProp.WEBPATH), fl.getPath());
+        new IOFile(ctx.mprop.get(MainProp.WEBPATH), fl.getPath());
+    }
+    return restxq;
+  }
+
+  /**
+   * Collects all module files in the specified path.
+   * @param root root path
+   * @param files module files
+   */
+  private static void files(final IOFile root, final ArrayList<IOFile> files) {
+    for(final IOFile file : root.children()) {
+      if(file.isDir()) {
+        files(file, files);
+      } else if(file.path().endsWith(IO.XQMSUFFIX)) {
+        files.add(file);
+      }
     }
-    // create new cache
-    final HashMap<String, RestXqModule> cache = new HashMap<String, RestXqModule>();
-    analyze(http, restxq, cache);
-    modules = cache;
   }
 
   /**
    * Analyzes the specified path.
+   * @param ctx database context
    * @param root root path
-   * @param http http context
    * @param cache cached modules
+   * @return {@code true} if new or modified modules have been parsed
    * @throws QueryException query exception
    */
-  private void analyze(final HTTPContext http, final IOFile root,
+  private boolean analyze(final Context ctx, final IOFile root,
       final HashMap<String, RestXqModule> cache) throws QueryException {
 
+    boolean changed = false;
     for(final IOFile file : root.children()) {
       if(file.isDir()) {
-        analyze(http, file, cache);
+        changed |= analyze(ctx, file, cache);
       } else if(file.path().endsWith(IO.XQMSUFFIX)) {
         // all files with .xqm suffix will be parsed for RESTXQ annotations
         final String path = file.path();
@@ -125,11 +215,13 @@ final class RestXqModules {
           module = new RestXqModule(file);
         }
         // add module if it has been parsed, and if it contains annotations
-        if(parsed || module.analyze(http)) {
+        if(parsed || module.analyze(ctx)) {
+          changed |= !parsed;
           module.touch();
           cache.put(path, module);
         }
       }
     }
+    return changed;
   }
 }
@@ -102,6 +102,8 @@ final class RestXqResponse {
       Value result = qc.value(bfc.compile(qc));
       final Value update = qc.update();
       if(update != null) result = update;
+      // cache values of static variables
+      function.module.cacheStatics(qc);
 
       // handle response element
       final ValueIter iter = result.iter();
@@ -136,6 +138,11 @@ final class RestXqResponse {
 
       // get serializer, initialize response and serialize result
       final SerializerProp sp = process(resp);
+      // choose the produced media type preferred by the client
+      if(sp != null && sp.get(SerializerProp.S_MEDIA_TYPE).isEmpty()) {
+        final MediaType mt = function.produced(http);
+        if(mt != null) sp.set(SerializerProp.S_MEDIA_TYPE, mt.toString());
+      }
       http.initResponse(sp);
       final Serializer ser = Serializer.get(http.res.getOutputStream(), sp);
       for(; item != null; item = iter.next()) ser.serialize(item);
@@ -148,11 +155,30 @@ final class RestXqResponse {
       if(redirect != null) {
         http.res.sendRedirect(redirect);
       } else if(forward != null) {
-        http.req.getRequestDispatcher(forward).forward(http.req, http.res);
+        forward(forward);
       }
     }
   }
 
+  /**
+   * Forwards the request to the specified target. If the target is addressed by
+   * a RESTXQ function, it is directly invoked in the current session. As the
+   * query context of the current function has already been evaluated and closed,
+   * the target function is evaluated in a new query context.
+   * Otherwise, the request will be forwarded by the servlet container.
+   * @param target forward target
+   * @throws Exception exception
+   */
+  private void forward(final String target) throws Exception {
+    final HTTPContext hc = http.forward(target);
+    final RestXqFunction rxf = hc == null ? null : RestXqModules.get().find(hc);
+    if(rxf != null) {
+      rxf.process(hc);
+    } else {
+      http.req.getRequestDispatcher(target).forward(http.req, http.res);
+    }
+  }
+
   /**
    * Processes the response element and creates the serialization parameters.
    * @param response response element
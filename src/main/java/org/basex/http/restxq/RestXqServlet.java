@@ -1,6 +1,8 @@
 package org.basex.http.restxq;
 
+import org.basex.core.*;
 import org.basex.http.*;
+import org.basex.query.*;
 
 /**
  * <p>This servlet receives and processes REST requests.
@@ -33,4 +35,13 @@ public final class RestXqServlet extends BaseXServlet {
       func.process(http);
     }
   }
+
+  /**
+   * Parses all RESTXQ modules in advance.
+   * @param ctx database context
+   * @throws QueryException query exception
+   */
+  public static void warmup(final Context ctx) throws QueryException {
+    RestXqModules.get().init(ctx);
+  }
 }
@@ -23,6 +23,8 @@ interface RestXqText {
   byte[] HEADER_PARAM = token("header-param");
   /** Token "cookie-param". */
   byte[] COOKIE_PARAM = token("cookie-param");
+  /** Token "static". */
+  byte[] STATIC = token("static");
 
   /** Token "header". */
   byte[] HEADER = token("header");
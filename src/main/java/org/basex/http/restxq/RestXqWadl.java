@@ -3,7 +3,11 @@ package org.basex.http.restxq;
 import java.io.*;
 import java.util.*;
 
+import javax.servlet.http.*;
+
 import org.basex.http.*;
+import org.basex.io.*;
+import org.basex.io.out.*;
 import org.basex.io.serial.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
@@ -11,7 +15,8 @@ import org.basex.util.*;
 
 /**
  * This class returns a Web Application Description Language (WADL) file,
- * listing all available RESTXQ services.
+ * listing all available RESTXQ services. The serialized WADL is cached for each
+ * version of the module cache and each base URL.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
@@ -19,24 +24,67 @@ import org.basex.util.*;
 final class RestXqWadl {
   /** WADL namespace. */
   private static final byte[] WADL = Token.token("http://wadl.dev.java.net/2009/02");
+  /** Start time, used to distinguish entity tags of different server runs. */
+  private static final String START = Long.toHexString(System.currentTimeMillis());
+
+  /** Cached WADL files, indexed by the base URL. */
+  private final HashMap<String, byte[]> cache = new HashMap<String, byte[]>();
+  /** Version of the cached modules. */
+  private int version = -1;
 
   /** Private constructor. */
   RestXqWadl() { }
 
   /**
-   * Lists all available URIs.
+   * Lists all available URIs. If the client has already received the current
+   * WADL file, status code 304 (not modified) is returned.
    * @param http HTTP context
    * @param modules available modules
+   * @param ver version of the available modules
+   * @throws IOException I/O exception
+   */
+  void create(final HTTPContext http, final HashMap<String, RestXqModule> modules,
+      final int ver) throws IOException {
+
+    // discard cached files if modules have changed
+    if(ver != version) {
+      cache.clear();
+      version = ver;
+    }
+
+    final String base = http.req.getRequestURL().toString().replaceAll(HTTPText.WADL, "");
+    final String etag = '"' + START + '-' + Integer.toHexString(ver) + '-' +
+        Integer.toHexString(base.hashCode()) + '"';
+    http.res.setHeader(HTTPText.ETAG, etag);
+    final String match = http.req.getHeader(HTTPText.IF_NONE_MATCH);
+    if(match != null && match.contains(etag)) {
+      http.res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    byte[] wadl = cache.get(base);
+    if(wadl == null) {
+      wadl = create(base, modules);
+      cache.put(base, wadl);
+    }
+    http.res.setContentType(MimeTypes.APP_XML);
+    http.res.getOutputStream().write(wadl);
+  }
+
+  /**
+   * Creates and serializes the WADL file.
+   * @param base base URL
+   * @param modules available modules
+   * @return serialized WADL
    * @throws IOException I/O exception
    */
-  synchronized void create(final HTTPContext http, final HashMap<String, RestXqModule>
-      modules) throws IOException {
+  private static byte[] create(final String base,
+      final HashMap<String, RestXqModule> modules) throws IOException {
 
     // create root nodes
     final Atts ns = new Atts(Token.EMPTY, WADL);
     final FElem appl = new FElem(new QNm("application", WADL), ns);
     final FElem ress = new FElem(new QNm("resources", WADL));
-    final String base = http.req.getRequestURL().toString().replaceAll(HTTPText.WADL, "");
     appl.add(ress.add(new QNm("base"), base));
 
     // create children
@@ -65,9 +113,11 @@ final class RestXqWadl {
     for(final FElem elem : map.values()) ress.add(elem);
 
     // serialize node
-    final Serializer ser = Serializer.get(http.res.getOutputStream());
+    final ArrayOutput ao = new ArrayOutput();
+    final Serializer ser = Serializer.get(ao);
     ser.serialize(appl);
     ser.close();
+    return ao.toArray();
   }
 
   /**
@@ -7,6 +7,7 @@ import org.basex.http.*;
 import org.basex.server.*;
 
 import com.bradmcevoy.http.*;
+import com.bradmcevoy.http.LockResult.FailureReason;
 import com.bradmcevoy.http.exceptions.*;
 
 /**
@@ -17,7 +18,7 @@ import com.bradmcevoy.http.exceptions.*;
  * @author Dimitar Popov
  */
 public abstract class BXAbstractResource extends BXResource implements
-    CopyableResource, DeletableResource, MoveableResource {
+    CopyableResource, DeletableResource, MoveableResource, LockableResource {
 
   /**
    * Constructor.
@@ -31,6 +32,32 @@ public abstract class BXAbstractResource extends BXResource implements
     super(d, p, m, h);
   }
 
+  @Override
+  public LockResult lock(final LockTimeout timeout, final LockInfo lockInfo) {
+    final String owner = owner();
+    return owner == null ? LockResult.failed(FailureReason.PRECONDITION_FAILED) :
+      BXLockManager.lock(db, path, timeout, lockInfo, owner);
+  }
+
+  @Override
+  public LockResult refreshLock(final String token) {
+    final String owner = owner();
+    return owner == null ? LockResult.failed(FailureReason.PRECONDITION_FAILED) :
+      BXLockManager.refresh(db, path, token, owner);
+  }
+
+  @Override
+  public void unlock(final String tokenId) throws PreConditionFailedException {
+    final String owner = owner();
+    if(owner == null || !BXLockManager.unlock(db, path, tokenId, owner))
+      throw new PreConditionFailedException(this);
+  }
+
+  @Override
+  public LockToken getCurrentLock() {
+    return BXLockManager.current(db, path);
+  }
+
   @Override
   public void delete() throws BadRequestException {
     new BXCode<Object>(this) {
@@ -79,10 +106,19 @@ public abstract class BXAbstractResource extends BXResource implements
     final LocalSession session = http.session();
     session.execute(new Open(db));
     session.execute(new Delete(path));
+    invalidate(db);
+    locked(db, true, http, new BXCode<Object>(this) {
+      @Override
+      public Object get() throws IOException {
+        BXFolders.delete(http, db, path);
+        return null;
+      }
+    });
+    BXLockManager.unlockAll(db, path);
 
-    // create dummy, if parent is an empty folder
+    // retain parent folder
     final int ix = path.lastIndexOf(SEP);
-    if(ix > 0) createDummy(path.substring(0, ix));
+    if(ix > 0) retain(path.substring(0, ix));
   }
 
   /**
@@ -94,14 +130,19 @@ public abstract class BXAbstractResource extends BXResource implements
     final LocalSession session = http.session();
     session.execute(new Open(db));
     session.execute(new Rename(path, n));
+    invalidate(db);
+    locked(db, true, http, new BXCode<Object>(this) {
+      @Override
+      public Object get() throws IOException {
+        BXFolders.rename(http, db, path, n);
+        return null;
+      }
+    });
+    BXLockManager.unlockAll(db, path);
 
-    // create dummy, if old parent is an empty folder
-    final int i1 = path.lastIndexOf(SEP);
-    if(i1 > 0) createDummy(path.substring(0, i1));
-
-    // delete dummy, if new parent is an empty folder
-    final int i2 = n.lastIndexOf(SEP);
-    if(i2 > 0) deleteDummy(n.substring(0, i2));
+    // retain old parent folder
+    final int ix = path.lastIndexOf(SEP);
+    if(ix > 0) retain(path.substring(0, ix));
   }
 
   /**
@@ -0,0 +1,191 @@
+package org.basex.http.webdav;
+
+import static org.basex.query.func.Function.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.http.*;
+import org.basex.io.*;
+import org.basex.server.*;
+import org.basex.util.*;
+
+/**
+ * Catalog of the databases and their timestamps that are readable by a user.
+ * A catalog is shared by all WebDAV requests of the same user, which is
+ * authenticated before the catalog is accessed. The catalog is retrieved with a
+ * single query. It is discarded if databases are created, dropped or updated via
+ * WebDAV, or if the database directory or the meta data file of a database has
+ * been modified. Catalogs are loaded while only the catalog of the requesting
+ * user is locked, so requests of other users are not blocked.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class BXCatalog {
+  /** Maximum number of cached catalogs. */
+  private static final int MAX = 256;
+  /** Catalogs, indexed by user name, in the order of their last access. */
+  private static final LinkedHashMap<String, BXCatalog> CATALOGS =
+    new LinkedHashMap<String, BXCatalog>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, BXCatalog> e) {
+        return size() > MAX;
+      }
+    };
+
+  /** Database timestamps, indexed by database name ({@code null}: not loaded). */
+  private TreeMap<String, Long> timestamps;
+  /** Time stamps of the meta data files, indexed by database name. */
+  private HashMap<String, Long> stamps;
+  /** Time stamp of the database directory. */
+  private long stamp;
+
+  /** Private constructor. */
+  private BXCatalog() { }
+
+  /**
+   * Returns the names and timestamps of all databases that are readable by the
+   * current user.
+   * @param http http context
+   * @return database timestamps, sorted by name (must not be modified)
+   * @throws IOException I/O exception
+   */
+  static TreeMap<String, Long> databases(final HTTPContext http)
+      throws IOException {
+    final BXCatalog cat = get(http);
+    synchronized(cat) {
+      if(!cat.valid(http, null)) cat.load(http);
+      return cat.timestamps;
+    }
+  }
+
+  /**
+   * Returns the timestamp of the specified database.
+   * @param db name of database
+   * @param http http context
+   * @return timestamp, or {@code null} if the database does not exist or is not
+   * readable by the current user
+   * @throws IOException I/O exception
+   */
+  static Long timestamp(final String db, final HTTPContext http)
+      throws IOException {
+    final BXCatalog cat = get(http);
+    synchronized(cat) {
+      if(!cat.valid(http, db)) cat.load(http);
+      return cat.timestamps.get(db);
+    }
+  }
+
+  /**
+   * Discards all catalogs.
+   */
+  static void invalidate() {
+    synchronized(CATALOGS) {
+      CATALOGS.clear();
+    }
+  }
+
+  /**
+   * Updates the time stamp of a database whose files have been modified on
+   * file system level. Must be called while the database is locked for writing.
+   * @param db name of database
+   * @param http http context
+   */
+  static void touch(final String db, final HTTPContext http) {
+    final IOFile dir = new IOFile(dir(http), db);
+    final long time = System.currentTimeMillis();
+    dir.file().setLastModified(time);
+    info(dir(http), db).file().setLastModified(time);
+  }
+
+  /**
+   * Returns the catalog of the current user. The user is authenticated first.
+   * @param http http context
+   * @return catalog
+   * @throws IOException I/O exception
+   */
+  private static BXCatalog get(final HTTPContext http) throws IOException {
+    final String user = http.user();
+    synchronized(CATALOGS) {
+      BXCatalog cat = CATALOGS.get(user);
+      if(cat == null) {
+        cat = new BXCatalog();
+        CATALOGS.put(user, cat);
+      }
+      return cat;
+    }
+  }
+
+  /**
+   * Checks if the catalog is still valid.
+   * @param http http context
+   * @param db name of the database to be checked ({@code null}: all databases)
+   * @return result of check
+   */
+  private boolean valid(final HTTPContext http, final String db) {
+    if(timestamps == null) return false;
+    final IOFile dir = dir(http);
+    if(dir.timeStamp() != stamp) return false;
+    if(db != null) {
+      final Long s = stamps.get(db);
+      return s == null || s == info(dir, db).timeStamp();
+    }
+    for(final Map.Entry<String, Long> s : stamps.entrySet()) {
+      if(s.getValue() != info(dir, s.getKey()).timeStamp()) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Loads the catalog. Databases that cannot be opened by the current user
+   * are skipped.
+   * @param http http context
+   * @throws IOException I/O exception
+   */
+  private void load(final HTTPContext http) throws IOException {
+    final IOFile dir = dir(http);
+    final TreeMap<String, Long> ts = new TreeMap<String, Long>();
+    final HashMap<String, Long> ss = new HashMap<String, Long>();
+    final long s = dir.timeStamp();
+
+    final LocalQuery q = http.session().query(
+        "for $d in " + _DB_LIST_DETAILS.args() +
+        "where (try { exists(" + _DB_INFO.args("$d/text()") + ") } " +
+        "catch * { false() })" +
+        "return ($d/text(), $d/@modified-date/data())");
+    try {
+      while(q.more()) {
+        final String name = q.next();
+        ss.put(name, info(dir, name).timeStamp());
+        ts.put(name, DateTime.parse(q.next()));
+      }
+    } finally {
+      q.close();
+    }
+    timestamps = ts;
+    stamps = ss;
+    stamp = s;
+  }
+
+  /**
+   * Returns the database directory.
+   * @param http http context
+   * @return directory
+   */
+  static IOFile dir(final HTTPContext http) {
+    return new IOFile(http.context().mprop.get(MainProp.DBPATH));
+  }
+
+  /**
+   * Returns the meta data file of a database.
+   * @param dir database directory
+   * @param db name of database
+   * @return file
+   */
+  private static IOFile info(final IOFile dir, final String db) {
+    return new IOFile(new IOFile(dir, db), DataText.DATAINF + IO.BASEXSUFFIX);
+  }
+}
@@ -31,16 +31,20 @@ public final class BXDatabase extends BXFolder {
   @Override
   protected void del() throws IOException {
     http.session().execute(new DropDB(db));
+    invalidate(db);
   }
 
   @Override
   protected void rename(final String n) throws IOException {
     http.session().execute(new AlterDB(db, n));
+    invalidate(db);
+    invalidate(n);
   }
 
   @Override
   protected void copyToRoot(final String n) throws IOException {
     http.session().execute(new Copy(db, n));
+    invalidate(n);
   }
 
   @Override
@@ -3,11 +3,15 @@ package org.basex.http.webdav;
 import static org.basex.query.func.Function.*;
 
 import java.io.*;
+import java.nio.channels.*;
 import java.util.*;
 
+import org.basex.core.*;
 import org.basex.core.cmd.*;
 import org.basex.http.*;
+import org.basex.io.*;
 import org.basex.server.*;
+import org.basex.util.*;
 
 import com.bradmcevoy.http.*;
 import com.bradmcevoy.http.exceptions.*;
@@ -20,6 +24,8 @@ import com.bradmcevoy.http.exceptions.*;
  * @author Dimitar Popov
  */
 public final class BXFile extends BXAbstractResource implements FileResource {
+  /** Option: maximum age (seconds) for which clients may cache files. */
+  private static final String MAXAGE = Prop.DBPREFIX + "webdavmaxage";
   /** Raw flag. */
   final boolean raw;
   /** Content type. */
@@ -57,7 +63,14 @@ public final class BXFile extends BXAbstractResource implements FileResource {
 
   @Override
   public Long getMaxAgeSeconds(final Auth auth) {
-    return null;
+    final String age = System.getProperty(MAXAGE);
+    return age == null ? null : Math.max(0, Token.toLong(age));
+  }
+
+  @Override
+  public String getUniqueId() {
+    final String id = super.getUniqueId();
+    return id == null || size == null ? id : id + '-' + Long.toHexString(size);
   }
 
   @Override
@@ -79,6 +92,17 @@ public final class BXFile extends BXAbstractResource implements FileResource {
     new BXCode<Object>(this) {
       @Override
       public void run() throws IOException {
+        // raw files are directly read from disk while the database is locked
+        if(raw && locked(db, false, http, new BXCode<Boolean>(BXFile.this) {
+          @Override
+          public Boolean get() throws IOException {
+            final IOFile file = binary(db, path, http);
+            if(!file.exists()) return false;
+            send(file, out, range);
+            return true;
+          }
+        })) return;
+
         final LocalSession session = http.session();
         session.setOutputStream(out);
         final Query q = session.query(raw ? "declare option output:method 'raw'; " +
@@ -90,6 +114,36 @@ public final class BXFile extends BXAbstractResource implements FileResource {
     }.eval();
   }
 
+  /**
+   * Sends the contents or the requested range of a file to the specified stream.
+   * @param file file
+   * @param out output stream
+   * @param range requested range (may be {@code null})
+   * @throws IOException I/O exception
+   */
+  private static void send(final IOFile file, final OutputStream out, final Range range)
+      throws IOException {
+
+    final RandomAccessFile raf = new RandomAccessFile(file.file(), "r");
+    try {
+      long start = 0, end = raf.length() - 1;
+      if(range != null) {
+        start = Math.max(0, range.getStart());
+        if(range.getFinish() >= start) end = Math.min(end, range.getFinish());
+      }
+      // transfer the bytes without copying them to the heap
+      final FileChannel fc = raf.getChannel();
+      final WritableByteChannel wbc = Channels.newChannel(out);
+      for(long pos = start; pos <= end;) {
+        final long n = fc.transferTo(pos, end - pos + 1, wbc);
+        if(n <= 0) break;
+        pos += n;
+      }
+    } finally {
+      raf.close();
+    }
+  }
+
   @Override
   protected void copyToRoot(final String n) throws IOException {
     // document is copied to the root: create new database with it
@@ -102,26 +156,34 @@ public final class BXFile extends BXAbstractResource implements FileResource {
   protected void copyTo(final BXFolder f, final String n) throws IOException {
     // folder is copied to a folder in a database
     add(f.db, f.path + '/' + n);
-    f.deleteDummy(f.path);
   }
 
   /**
-   * Adds a document to the specified target.
+   * Adds a document to the specified target. XML nodes are copied without being
+   * serialized. Raw files are copied on file system level while the target
+   * database is locked for writing.
    * @param tdb target database
    * @param tpath target path
    * @throws IOException I/O exception
    */
   protected void add(final String tdb, final String tpath) throws IOException {
-    final LocalSession session = http.session();
-    final LocalQuery q = session.query(
-        "declare option db:chop 'false'; " +
-        "if(" + _DB_IS_RAW.args("$db", "$path") + ") " +
-        " then " + _DB_STORE.args("$tdb", "$tpath", _DB_RETRIEVE.args("$db", "$path")) +
-        " else " + _DB_ADD.args("$tdb", _DB_OPEN.args("$db", "$path"), "$tpath"));
-    q.bind("db", db);
-    q.bind("path", path);
-    q.bind("tdb", tdb);
-    q.bind("tpath", tpath);
-    q.execute();
+    if(raw) {
+      locked(tdb, db, true, http, new BXCode<Object>(this) {
+        @Override
+        public Object get() throws IOException {
+          copyRaw(tdb, tpath);
+          return null;
+        }
+      });
+    } else {
+      final LocalQuery q = http.session().query("declare option db:chop 'false'; " +
+          _DB_ADD.args("$tdb", _DB_OPEN.args("$db", "$path"), "$tpath"));
+      q.bind("db", db);
+      q.bind("path", path);
+      q.bind("tdb", tdb);
+      q.bind("tpath", tpath);
+      q.execute();
+    }
+    invalidate(tdb);
   }
 }
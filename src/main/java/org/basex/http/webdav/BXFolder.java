@@ -10,6 +10,7 @@ import org.basex.core.*;
 import org.basex.core.cmd.*;
 import org.basex.core.cmd.Set;
 import org.basex.http.*;
+import org.basex.io.*;
 import org.basex.io.in.*;
 import org.basex.server.*;
 import org.basex.util.*;
@@ -25,7 +26,7 @@ import com.bradmcevoy.http.exceptions.*;
  * @author Dimitar Popov
  */
 public class BXFolder extends BXAbstractResource implements FolderResource,
-    DeletableCollectionResource {
+    DeletableCollectionResource, LockingCollectionResource {
 
   /**
    * Constructor.
@@ -73,14 +74,35 @@ public class BXFolder extends BXAbstractResource implements FolderResource,
     return new BXCode<BXFolder>(this) {
       @Override
       public BXFolder get() throws IOException {
-        deleteDummy(path);
         final String newFolder = path + SEP + folder;
-        createDummy(newFolder);
+        retain(newFolder);
         return folder(db, newFolder, http);
       }
     }.eval();
   }
 
+  @Override
+  public LockToken createAndLock(final String name, final LockTimeout timeout,
+      final LockInfo lockInfo) throws NotAuthorizedException {
+    // lock-null resource: the resource is created by a subsequent PUT request
+    final String owner = owner();
+    if(owner == null) throw new NotAuthorizedException(this);
+    // locked paths are rejected by the servlet; the lock may have been created since
+    final LockResult lr = BXLockManager.lock(db, path + SEP + name, timeout, lockInfo,
+        owner);
+    if(!lr.isSuccessful()) throw new NotAuthorizedException(this);
+    return lr.getLockToken();
+  }
+
+  /**
+   * Checks if a child resource, which may not exist yet, is locked.
+   * @param name name of the child
+   * @return result of check
+   */
+  boolean lockedChild(final String name) {
+    return BXLockManager.current(db, path + SEP + name) != null;
+  }
+
   @Override
   public BXResource child(final String childName) {
     return new BXCode<BXResource>(this) {
@@ -97,34 +119,20 @@ public class BXFolder extends BXAbstractResource implements FolderResource,
       @Override
       public List<BXResource> get() throws IOException {
         final List<BXResource> ch = new ArrayList<BXResource>();
-        final HashSet<String> paths = new HashSet<String>();
-        final LocalSession session = http.session();
-        final LocalQuery q = session.query(
-            "for $a in " + _DB_LIST_DETAILS.args("$d", "$p") +
-            "return ($a/@raw/data()," +
-                    "$a/@content-type/data()," +
-                    "$a/@modified-date/data()," +
-                    "$a/@size/data()," +
-                    SUBSTRING_AFTER.args("$a/text()", "$p") + ')');
-        q.bind("d", db);
-        q.bind("p", path);
-        while(q.more()) {
-          final boolean raw = Boolean.parseBoolean(q.next());
-          final String ctype = q.next();
-          final long mod = DateTime.parse(q.next());
-          final Long size = raw ? Long.valueOf(q.next()) : null;
-          final String p = stripLeadingSlash(q.next());
-          final int ix = p.indexOf(SEP);
-          // check if document or folder
-          if(ix < 0) {
-            if(!p.equals(DUMMY))
-              ch.add(new BXFile(db, path + SEP + p, mod, raw, ctype, size, http));
-          } else {
-            final String dir = path + SEP + p.substring(0, ix);
-            if(paths.add(dir)) ch.add(new BXFolder(db, dir, mod, http));
+        final BXSnapshot snap = BXSnapshot.get(http);
+        final BXIndex.Dir dir = snap.dir(db, path);
+        if(dir != null) {
+          for(final BXIndex.Dir d : dir.dirs.values())
+            ch.add(new BXFolder(db, d.path, d.mdate, http));
+          for(final Map.Entry<String, BXSnapshot.Meta> entry : dir.files.entrySet()) {
+            if(!entry.getKey().equals(DUMMY)) ch.add(file(entry.getValue(), db, http));
           }
         }
-        q.close();
+        // add registered folders without resources
+        for(final String name : BXFolders.children(http, db, path)) {
+          if(dir == null || !dir.dirs.containsKey(name))
+            ch.add(new BXFolder(db, path + SEP + name, snap.timestamp(db), http));
+        }
         return ch;
       }
     }.evalNoEx();
@@ -141,53 +149,102 @@ public class BXFolder extends BXAbstractResource implements FolderResource,
         session.execute(new Open(db));
         final String dbp = path.isEmpty() ? newName : path + SEP + newName;
         // delete old resource if it already exists
-        if(pathExists(db, dbp, http)) session.execute(new Delete(dbp));
-        // otherwise, delete dummy file
-        else deleteDummy(path);
-        addFile(newName, input);
+        if(pathExists(db, dbp, http)) {
+          session.execute(new Delete(dbp));
+          invalidate(db);
+        }
+        addFile(newName, input, length);
         return file(db, dbp, http);
       }
     }.eval();
   }
 
   /**
-   * Adds a file in the current folder.
+   * Adds a file in the current folder. The input is read once and spooled to a
+   * temporary file, which is then added as XML document or raw file.
    * @param n file name
    * @param in file content
+   * @param length content length (may be {@code null})
    * @throws IOException I/O exception
    */
-  protected void addFile(final String n, final InputStream in) throws IOException {
-    // use 4MB as buffer input
-    final BufferInput bi = new BufferInput(in, 1 << 22);
+  protected void addFile(final String n, final InputStream in, final Long length)
+      throws IOException {
+
+    final IOFile file = spool(in, length);
     try {
       // guess the content type from the first character
-      final TextInput ti = new TextInput(bi);
-      final boolean xml = ti.read() == '<';
-      try {
-        bi.reset();
-      } catch(final IOException ignore) {
-      }
-
-      if(xml) {
+      if(xml(file)) {
+        final BufferInput bi = new BufferInput(file);
         try {
           // add input as XML document
           addXML(n, bi);
           return;
         } catch(final IOException ex) {
-          // reset stream if it did not work out
-          try {
-            bi.reset();
-          } catch(final IOException e) {
-            // throw original exception if input cannot be reset
-            throw ex;
-          }
+          // add input as raw file if it did not work out
+          Util.debug(ex);
+        } finally {
+          bi.close();
         }
       }
 
       // add input as raw file
-      addRaw(n, bi);
+      final BufferInput bi = new BufferInput(file);
+      try {
+        addRaw(n, bi);
+      } finally {
+        bi.close();
+      }
     } finally {
-      bi.close();
+      file.delete();
+      invalidate(db);
+    }
+  }
+
+  /**
+   * Writes the specified input to a temporary file.
+   * @param in input stream
+   * @param length content length (may be {@code null})
+   * @return temporary file
+   * @throws IOException I/O exception
+   */
+  private static IOFile spool(final InputStream in, final Long length)
+      throws IOException {
+
+    final File file = File.createTempFile(Prop.NAME, ".tmp");
+    try {
+      final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try {
+        // reserve disk space if the length is known in advance
+        if(length != null && length > 0) raf.setLength(length);
+        final byte[] buffer = new byte[1 << 16];
+        long size = 0;
+        for(int r; (r = in.read(buffer)) != -1;) {
+          raf.write(buffer, 0, r);
+          size += r;
+        }
+        raf.setLength(size);
+      } finally {
+        raf.close();
+      }
+    } catch(final IOException ex) {
+      file.delete();
+      throw ex;
+    }
+    return new IOFile(file);
+  }
+
+  /**
+   * Checks if the specified file starts with an opening angle bracket.
+   * @param file file
+   * @return result of check
+   * @throws IOException I/O exception
+   */
+  private static boolean xml(final IOFile file) throws IOException {
+    final TextInput ti = new TextInput(file);
+    try {
+      return ti.read() == '<';
+    } finally {
+      ti.close();
     }
   }
 
@@ -225,11 +282,12 @@ public class BXFolder extends BXAbstractResource implements FolderResource,
   protected void copyTo(final BXFolder f, final String n) throws IOException {
     // folder is copied to a folder in a database
     add(f.db, f.path + SEP + n);
-    f.deleteDummy(f.path);
   }
 
   /**
-   * Adds all documents in the folder to another folder.
+   * Adds all documents in the folder to another folder. The XML documents are
+   * copied in a single update, without being serialized. Raw files are copied on
+   * file system level while the target database is locked for writing.
    * @param tdb target database
    * @param tpath target folder
    * @throws IOException I/O exception
@@ -237,15 +295,24 @@ public class BXFolder extends BXAbstractResource implements FolderResource,
   private void add(final String tdb, final String tpath) throws IOException {
     final LocalQuery q = http.session().query(
         "declare option db:chop 'false'; " +
-        "for $d in " + _DB_LIST.args("$db", "$path") +
-        "let $t := $tpath ||'/'|| substring($d, string-length($path) + 1) return " +
-        "if(" + _DB_IS_RAW.args("$db", "$d") + ") " +
-        " then " + _DB_STORE.args("$tdb", "$t", _DB_RETRIEVE.args("$db", "$d")) +
-        " else " + _DB_ADD.args("$tdb", _DB_OPEN.args("$db", "$d"), "$t"));
+        "for $d in " + _DB_LIST_DETAILS.args("$db", "$path") + "[@raw = 'false'] " +
+        "let $p := string($d) " +
+        "let $t := $tpath ||'/'|| substring($p, string-length($path) + 1) " +
+        "return " + _DB_ADD.args("$tdb", _DB_OPEN.args("$db", "$p"), "$t"));
     q.bind("db", db);
     q.bind("path", path);
     q.bind("tdb", tdb);
     q.bind("tpath", tpath);
     q.execute();
+
+    locked(tdb, db, true, http, new BXCode<Object>(this) {
+      @Override
+      public Object get() throws IOException {
+        copyRaw(tdb, tpath);
+        BXFolders.copy(http, db, path, tdb, tpath);
+        return null;
+      }
+    });
+    invalidate(tdb);
   }
 }
@@ -0,0 +1,229 @@
+package org.basex.http.webdav;
+
+import static org.basex.http.webdav.BXResource.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.http.*;
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * Registry of WebDAV folders that are retained even if they contain no resources.
+ * The folder paths of a database are stored in a small file in the database
+ * directory, which is dropped, renamed or copied along with the database.
+ * Registrations must only be updated while the database is locked for writing
+ * (see {@link BXResource#locked}), which requires write permissions.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class BXFolders {
+  /** Name of the file that contains the folder paths. */
+  private static final String FILE = "folders.webdav";
+  /** Cached folder paths, indexed by file path. */
+  private static final HashMap<String, TreeSet<String>> FOLDERS =
+      new HashMap<String, TreeSet<String>>();
+  /** Time stamps of the cached files, indexed by file path. */
+  private static final HashMap<String, Long> STAMPS = new HashMap<String, Long>();
+
+  /** Private constructor. */
+  private BXFolders() { }
+
+  /**
+   * Checks if the specified folder or one of its descendants has been registered.
+   * @param http http context
+   * @param db name of database
+   * @param path folder path
+   * @return result of check
+   * @throws IOException I/O exception
+   */
+  static synchronized boolean contains(final HTTPContext http, final String db,
+      final String path) throws IOException {
+
+    final String p = normalize(path);
+    final TreeSet<String> folders = read(file(http, db));
+    if(folders.contains(p)) return true;
+    final String dir = p + SEP;
+    final String next = folders.ceiling(dir);
+    return next != null && next.startsWith(dir);
+  }
+
+  /**
+   * Returns the names of the registered child folders of the specified folder.
+   * @param http http context
+   * @param db name of database
+   * @param path folder path
+   * @return names of child folders
+   * @throws IOException I/O exception
+   */
+  static synchronized TreeSet<String> children(final HTTPContext http, final String db,
+      final String path) throws IOException {
+
+    final String p = normalize(path);
+    final String dir = p.isEmpty() ? p : p + SEP;
+    final TreeSet<String> names = new TreeSet<String>();
+    for(final String f : read(file(http, db)).tailSet(dir)) {
+      if(!f.startsWith(dir)) break;
+      final String name = f.substring(dir.length());
+      if(name.isEmpty()) continue;
+      final int i = name.indexOf(SEP);
+      names.add(i < 0 ? name : name.substring(0, i));
+    }
+    return names;
+  }
+
+  /**
+   * Registers a folder.
+   * @param http http context
+   * @param db name of database
+   * @param path folder path
+   * @throws IOException I/O exception
+   */
+  static synchronized void add(final HTTPContext http, final String db,
+      final String path) throws IOException {
+
+    final String p = normalize(path);
+    if(p.isEmpty()) return;
+    final IOFile file = file(http, db);
+    final TreeSet<String> folders = read(file);
+    if(folders.add(p)) write(file, folders);
+  }
+
+  /**
+   * Unregisters a folder and all its descendants.
+   * @param http http context
+   * @param db name of database
+   * @param path folder path
+   * @throws IOException I/O exception
+   */
+  static synchronized void delete(final HTTPContext http, final String db,
+      final String path) throws IOException {
+
+    final IOFile file = file(http, db);
+    final TreeSet<String> folders = read(file);
+    if(!remove(folders, normalize(path)).isEmpty()) write(file, folders);
+  }
+
+  /**
+   * Renames a folder and all its descendants.
+   * @param http http context
+   * @param db name of database
+   * @param path old folder path
+   * @param target new folder path
+   * @throws IOException I/O exception
+   */
+  static synchronized void rename(final HTTPContext http, final String db,
+      final String path, final String target) throws IOException {
+
+    final IOFile file = file(http, db);
+    final TreeSet<String> folders = read(file);
+    final ArrayList<String> removed = remove(folders, normalize(path));
+    if(removed.isEmpty()) return;
+    final String p = normalize(path), t = normalize(target);
+    for(final String f : removed) folders.add(t + f.substring(p.length()));
+    write(file, folders);
+  }
+
+  /**
+   * Copies the registered folders below the specified folder to another folder.
+   * @param http http context
+   * @param db name of database
+   * @param path source folder
+   * @param tdb target database
+   * @param tpath target folder
+   * @throws IOException I/O exception
+   */
+  static synchronized void copy(final HTTPContext http, final String db,
+      final String path, final String tdb, final String tpath) throws IOException {
+
+    final String p = normalize(path), t = normalize(tpath);
+    final String dir = p.isEmpty() ? p : p + SEP;
+    final ArrayList<String> copied = new ArrayList<String>();
+    for(final String f : read(file(http, db)).tailSet(dir)) {
+      if(!f.startsWith(dir)) break;
+      copied.add(normalize(t + SEP + f.substring(dir.length())));
+    }
+    if(copied.isEmpty()) return;
+
+    final IOFile file = file(http, tdb);
+    final TreeSet<String> folders = read(file);
+    folders.addAll(copied);
+    write(file, folders);
+  }
+
+  // PRIVATE METHODS ====================================================================
+
+  /**
+   * Removes a folder and all its descendants from the specified set.
+   * @param folders folders
+   * @param path folder path
+   * @return removed folders
+   */
+  private static ArrayList<String> remove(final TreeSet<String> folders,
+      final String path) {
+
+    final ArrayList<String> removed = new ArrayList<String>();
+    final String dir = path + SEP;
+    for(final String f : folders.tailSet(path)) {
+      if(f.equals(path) || f.startsWith(dir)) removed.add(f);
+      else if(!f.startsWith(path)) break;
+    }
+    folders.removeAll(removed);
+    return removed;
+  }
+
+  /**
+   * Returns the file that contains the folder paths of a database.
+   * @param http http context
+   * @param db name of database
+   * @return file
+   */
+  private static IOFile file(final HTTPContext http, final String db) {
+    return new IOFile(new IOFile(BXCatalog.dir(http), db), FILE);
+  }
+
+  /**
+   * Returns the folder paths stored in the specified file.
+   * @param file file
+   * @return folder paths
+   * @throws IOException I/O exception
+   */
+  private static TreeSet<String> read(final IOFile file) throws IOException {
+    final String key = file.path();
+    final long stamp = file.exists() ? file.timeStamp() : -1;
+    TreeSet<String> folders = FOLDERS.get(key);
+    if(folders == null || STAMPS.get(key) != stamp) {
+      folders = new TreeSet<String>();
+      if(stamp != -1) {
+        for(final String f : Token.string(file.read()).split("\n")) {
+          if(!f.isEmpty()) folders.add(f);
+        }
+      }
+      FOLDERS.put(key, folders);
+      STAMPS.put(key, stamp);
+    }
+    return folders;
+  }
+
+  /**
+   * Writes folder paths to the specified file.
+   * @param file file
+   * @param folders folder paths
+   * @throws IOException I/O exception
+   */
+  private static void write(final IOFile file, final TreeSet<String> folders)
+      throws IOException {
+
+    if(folders.isEmpty()) {
+      file.delete();
+    } else {
+      final TokenBuilder tb = new TokenBuilder();
+      for(final String f : folders) tb.add(f).add('\n');
+      file.write(tb.finish());
+    }
+    FOLDERS.put(file.path(), folders);
+    STAMPS.put(file.path(), file.exists() ? file.timeStamp() : -1);
+  }
+}
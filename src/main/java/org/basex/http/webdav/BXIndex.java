@@ -0,0 +1,240 @@
+package org.basex.http.webdav;
+
+import static org.basex.http.webdav.BXResource.*;
+import static org.basex.query.func.Function.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.http.*;
+import org.basex.http.webdav.BXSnapshot.Meta;
+import org.basex.server.*;
+import org.basex.util.*;
+
+/**
+ * Directory index of a single database. Directories are listed on demand, one
+ * level at a time, and the listings are shared by all requests of the same user
+ * until the database timestamp changes or the database is updated via WebDAV.
+ * Listing a folder hence only transfers and caches its direct children.
+ * Directories are listed with the session of the authenticated user, so they are
+ * only available for users with read permissions. The least recently used indexes
+ * are discarded if the cached listings contain too many entries.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class BXIndex {
+  /** Maximum number of entries in all cached indexes. */
+  private static final int MAX = 1 << 20;
+  /** Indexes, indexed by user and database name, in the order of their last access. */
+  private static final LinkedHashMap<String, BXIndex> INDEXES =
+      new LinkedHashMap<String, BXIndex>(16, 0.75f, true);
+  /** Number of entries in all cached indexes. */
+  private static int entries;
+  /**
+   * Query for listing the direct children of a directory. Files are returned as
+   * six strings (type, raw flag, content type, modification date, size, name),
+   * subdirectories as three strings (type, name, latest modification date).
+   */
+  private static final String LIST =
+      "for $a in " + _DB_LIST_DETAILS.args("$d", "$p") +
+      " let $r := replace(string($a), '^/', '') " +
+      "where $p = '' or starts-with($r, concat($p, '/')) " +
+      "let $s := substring($r, if($p = '') then 1 else string-length($p) + 2) " +
+      "let $n := substring-before($s, '/') " +
+      "let $k := if($n) then $n else $s " +
+      "let $f := not($n) " +
+      "group by $k, $f " +
+      "return if($f) then ('f', string($a/@raw), string($a/@content-type), " +
+      "string($a/@modified-date), string($a/@size), $k) " +
+      "else ('d', $k, string(max(for $m in $a/@modified-date return xs:dateTime($m))))";
+
+  /** Listed directories, indexed by their paths. */
+  private final HashMap<String, Dir> dirs = new HashMap<String, Dir>();
+  /** Name of database. */
+  final String db;
+  /** Database timestamp at the time the index was created. */
+  final long timestamp;
+  /** Time of the last validation. */
+  volatile long checked = System.currentTimeMillis();
+  /** Number of cached entries. */
+  private int size;
+
+  /**
+   * Constructor.
+   * @param d name of database
+   * @param ts database timestamp
+   */
+  private BXIndex(final String d, final long ts) {
+    db = d;
+    timestamp = ts;
+  }
+
+  /**
+   * Returns a cached index.
+   * @param user name of the authenticated user
+   * @param db name of database
+   * @return index, or {@code null}
+   */
+  static BXIndex cached(final String user, final String db) {
+    synchronized(INDEXES) {
+      return INDEXES.get(key(user, db));
+    }
+  }
+
+  /**
+   * Creates and caches a new, empty index.
+   * @param user name of the authenticated user
+   * @param db name of database
+   * @param ts database timestamp
+   * @return index
+   */
+  static BXIndex create(final String user, final String db, final long ts) {
+    final BXIndex index = new BXIndex(db, ts);
+    synchronized(INDEXES) {
+      final BXIndex old = INDEXES.put(key(user, db), index);
+      if(old != null) entries -= old.size;
+    }
+    return index;
+  }
+
+  /**
+   * Discards all indexes of the specified database.
+   * @param db name of database
+   */
+  static void remove(final String db) {
+    synchronized(INDEXES) {
+      final Iterator<BXIndex> it = INDEXES.values().iterator();
+      while(it.hasNext()) {
+        final BXIndex index = it.next();
+        if(!index.db.equals(db)) continue;
+        entries -= index.size;
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns the specified directory. The directory is listed if it has not been
+   * listed before.
+   * @param path directory path (without leading and trailing slashes)
+   * @param http http context
+   * @return directory, or {@code null} if it contains no resources
+   * @throws IOException I/O exception
+   */
+  Dir dir(final String path, final HTTPContext http) throws IOException {
+    Dir dir;
+    synchronized(dirs) {
+      dir = dirs.get(path);
+    }
+    if(dir == null) {
+      dir = list(path, http);
+      synchronized(dirs) {
+        final Dir old = dirs.put(path, dir);
+        if(old == null) grow(dir.dirs.size() + dir.files.size() + 1);
+      }
+    }
+    return path.isEmpty() || !dir.dirs.isEmpty() || !dir.files.isEmpty() ? dir : null;
+  }
+
+  /**
+   * Returns the metadata of the specified file.
+   * @param path file path (without leading and trailing slashes)
+   * @param http http context
+   * @return metadata, or {@code null} if the file does not exist
+   * @throws IOException I/O exception
+   */
+  Meta file(final String path, final HTTPContext http) throws IOException {
+    final int i = path.lastIndexOf(SEP);
+    final Dir dir = dir(i < 0 ? "" : path.substring(0, i), http);
+    return dir == null ? null : dir.files.get(path.substring(i + 1));
+  }
+
+  /**
+   * Lists the direct children of a directory.
+   * @param path directory path
+   * @param http http context
+   * @return directory
+   * @throws IOException I/O exception
+   */
+  private Dir list(final String path, final HTTPContext http) throws IOException {
+    final Dir dir = new Dir(path);
+    final String prefix = path.isEmpty() ? "" : path + SEP;
+    final LocalQuery q = http.session().query(LIST);
+    q.bind("d", db);
+    q.bind("p", path);
+    try {
+      while(q.more()) {
+        if(q.next().equals("f")) {
+          final boolean raw = Boolean.parseBoolean(q.next());
+          final String ctype = q.next();
+          final long mod = DateTime.parse(q.next());
+          final String sz = q.next();
+          final Long size = raw && !sz.isEmpty() ? Long.valueOf(sz) : null;
+          final String name = q.next();
+          dir.files.put(name, new Meta(prefix + name, raw, ctype, mod, size));
+        } else {
+          final String name = q.next();
+          final Dir d = new Dir(prefix + name);
+          d.mdate = DateTime.parse(q.next());
+          dir.dirs.put(name, d);
+        }
+      }
+    } finally {
+      q.close();
+    }
+    return dir;
+  }
+
+  /**
+   * Registers new entries of this index and discards the least recently used
+   * other indexes if the maximum number of entries is exceeded.
+   * @param n number of new entries
+   */
+  private void grow(final int n) {
+    synchronized(INDEXES) {
+      size += n;
+      entries += n;
+      final Iterator<BXIndex> it = INDEXES.values().iterator();
+      while(entries > MAX && it.hasNext()) {
+        final BXIndex index = it.next();
+        if(index == this) continue;
+        entries -= index.size;
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns the key of an index.
+   * @param user name of user
+   * @param db name of database
+   * @return key
+   */
+  private static String key(final String user, final String db) {
+    return user + SEP + db;
+  }
+
+  /**
+   * Single directory. The subdirectories of a listed directory only contain
+   * their path and latest modification date.
+   */
+  static final class Dir {
+    /** Subdirectories, indexed by their names. */
+    final TreeMap<String, Dir> dirs = new TreeMap<String, Dir>();
+    /** Files, indexed by their names. */
+    final TreeMap<String, Meta> files = new TreeMap<String, Meta>();
+    /** Directory path (without leading slash). */
+    final String path;
+    /** Latest modification date of all resources. */
+    long mdate;
+
+    /**
+     * Constructor.
+     * @param p directory path
+     */
+    Dir(final String p) {
+      path = p;
+    }
+  }
+}
@@ -0,0 +1,240 @@
+package org.basex.http.webdav;
+
+import java.util.*;
+
+import com.bradmcevoy.http.*;
+import com.bradmcevoy.http.LockResult.FailureReason;
+
+/**
+ * In-memory table of WebDAV locks. Locks are indexed by the database and path of
+ * the locked resource and distributed over several stripes, so that requests on
+ * different resources rarely compete for the same monitor. Each lock is owned by
+ * the authenticated user who created it; only this user can refresh or remove it.
+ * Expired locks are discarded when they are accessed, and all expired locks of a
+ * stripe are periodically purged when new locks are created.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class BXLockManager {
+  /** Default timeout (seconds). */
+  private static final long TIMEOUT = 3600;
+  /** Maximum timeout (seconds). */
+  private static final long MAXTIMEOUT = 86400;
+  /** Interval (ms) after which expired locks of a stripe are purged. */
+  private static final long PURGE = 60000;
+  /** Number of stripes (must be a power of two). */
+  private static final int STRIPES = 1 << 4;
+  /** Stripes. */
+  private static final Stripe[] LOCKS = new Stripe[STRIPES];
+
+  static {
+    for(int s = 0; s < STRIPES; s++) LOCKS[s] = new Stripe();
+  }
+
+  /** Private constructor. */
+  private BXLockManager() { }
+
+  /**
+   * Locks a resource.
+   * @param db name of database
+   * @param path resource path
+   * @param timeout requested timeout
+   * @param info lock information
+   * @param owner name of the authenticated user
+   * @return result
+   */
+  static LockResult lock(final String db, final String path, final LockTimeout timeout,
+      final LockInfo info, final String owner) {
+
+    final String key = key(db, path);
+    final Stripe stripe = stripe(key);
+    synchronized(stripe) {
+      stripe.purge();
+      if(stripe.get(key) != null) return LockResult.failed(FailureReason.ALREADY_LOCKED);
+      final long secs = seconds(timeout);
+      final LockToken token = new LockToken(UUID.randomUUID().toString(), info,
+          new LockTimeout(secs));
+      stripe.locks.put(key, new Lock(token, secs, owner));
+      return LockResult.success(token);
+    }
+  }
+
+  /**
+   * Refreshes the lock of a resource.
+   * @param db name of database
+   * @param path resource path
+   * @param token lock token
+   * @param owner name of the authenticated user
+   * @return result
+   */
+  static LockResult refresh(final String db, final String path, final String token,
+      final String owner) {
+
+    final String key = key(db, path);
+    final Stripe stripe = stripe(key);
+    synchronized(stripe) {
+      final Lock lock = stripe.get(key);
+      if(lock == null || !lock.token.tokenId.equals(token) || !lock.owner.equals(owner))
+        return LockResult.failed(FailureReason.PRECONDITION_FAILED);
+      lock.refresh();
+      return LockResult.success(lock.token);
+    }
+  }
+
+  /**
+   * Removes the lock of a resource.
+   * @param db name of database
+   * @param path resource path
+   * @param token lock token
+   * @param owner name of the authenticated user
+   * @return {@code false} if the resource is locked with another token, or by
+   * another user
+   */
+  static boolean unlock(final String db, final String path, final String token,
+      final String owner) {
+
+    final String key = key(db, path);
+    final Stripe stripe = stripe(key);
+    synchronized(stripe) {
+      final Lock lock = stripe.get(key);
+      if(lock != null && (!lock.token.tokenId.equals(token) || !lock.owner.equals(owner)))
+        return false;
+      stripe.locks.remove(key);
+      return true;
+    }
+  }
+
+  /**
+   * Removes the locks of a resource and all its descendants. This method is called
+   * after resources have been deleted or moved.
+   * @param db name of database
+   * @param path resource path
+   */
+  static void unlockAll(final String db, final String path) {
+    final String key = key(db, path);
+    final String dir = key + BXResource.SEP;
+    for(final Stripe stripe : LOCKS) {
+      synchronized(stripe) {
+        final Iterator<String> it = stripe.locks.keySet().iterator();
+        while(it.hasNext()) {
+          final String k = it.next();
+          if(k.equals(key) || k.startsWith(dir)) it.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the current lock of a resource.
+   * @param db name of database
+   * @param path resource path
+   * @return lock token, or {@code null}
+   */
+  static LockToken current(final String db, final String path) {
+    final String key = key(db, path);
+    final Stripe stripe = stripe(key);
+    synchronized(stripe) {
+      final Lock lock = stripe.get(key);
+      return lock == null ? null : lock.token;
+    }
+  }
+
+  // PRIVATE METHODS ====================================================================
+
+  /**
+   * Returns the key of a resource.
+   * @param db name of database
+   * @param path resource path
+   * @return key
+   */
+  private static String key(final String db, final String path) {
+    return db + BXResource.SEP + BXResource.normalize(path);
+  }
+
+  /**
+   * Returns the stripe of the specified key.
+   * @param key key
+   * @return stripe
+   */
+  private static Stripe stripe(final String key) {
+    final int h = key.hashCode();
+    return LOCKS[(h ^ h >>> 16) & STRIPES - 1];
+  }
+
+  /**
+   * Returns the timeout in seconds.
+   * @param timeout requested timeout (may be {@code null})
+   * @return seconds
+   */
+  private static long seconds(final LockTimeout timeout) {
+    final Long secs = timeout == null ? null : timeout.getSeconds();
+    return secs == null || secs <= 0 ? TIMEOUT : Math.min(secs, MAXTIMEOUT);
+  }
+
+  /** Locks of a single stripe. */
+  private static final class Stripe {
+    /** Locks, indexed by resource key. */
+    final HashMap<String, Lock> locks = new HashMap<String, Lock>();
+    /** Time of the last purge. */
+    long purged = System.currentTimeMillis();
+
+    /**
+     * Discards all expired locks if the last purge is longer ago than the purge
+     * interval.
+     */
+    void purge() {
+      final long time = System.currentTimeMillis();
+      if(time - purged < PURGE) return;
+      purged = time;
+      final Iterator<Lock> it = locks.values().iterator();
+      while(it.hasNext()) {
+        if(it.next().expires <= time) it.remove();
+      }
+    }
+
+    /**
+     * Returns the lock with the specified key and discards it if it has expired.
+     * @param key key
+     * @return lock, or {@code null}
+     */
+    Lock get(final String key) {
+      final Lock lock = locks.get(key);
+      if(lock == null || lock.expires > System.currentTimeMillis()) return lock;
+      locks.remove(key);
+      return null;
+    }
+  }
+
+  /** Single lock. */
+  private static final class Lock {
+    /** Lock token. */
+    final LockToken token;
+    /** Name of the user who owns the lock. */
+    final String owner;
+    /** Timeout (seconds). */
+    final long timeout;
+    /** Expiration time. */
+    long expires;
+
+    /**
+     * Constructor.
+     * @param tk lock token
+     * @param to timeout in seconds
+     * @param ow name of the owner
+     */
+    Lock(final LockToken tk, final long to, final String ow) {
+      token = tk;
+      timeout = to;
+      owner = ow;
+      refresh();
+    }
+
+    /**
+     * Extends the lifetime of the lock.
+     */
+    void refresh() {
+      expires = System.currentTimeMillis() + timeout * 1000;
+    }
+  }
+}
@@ -3,14 +3,15 @@ package org.basex.http.webdav;
 import static org.basex.query.func.Function.*;
 
 import java.io.*;
+import java.nio.channels.*;
 import java.util.*;
 
 import org.basex.core.*;
 import org.basex.core.cmd.*;
+import org.basex.data.*;
 import org.basex.http.*;
-import org.basex.io.in.*;
-import org.basex.server.*;
-import org.basex.util.*;
+import org.basex.io.*;
+import org.basex.query.*;
 
 import com.bradmcevoy.http.*;
 import com.bradmcevoy.http.Request.Method;
@@ -23,13 +24,14 @@ import com.bradmcevoy.http.Request.Method;
  * @author Dimitar Popov
  */
 public class BXResource implements Resource {
-  /** Time string. */
-  static final String TIME =
-      Text.TIMESTAMP.replaceAll(" |-", "").toLowerCase(Locale.ENGLISH);
   /** File path separator. */
   static final char SEP = '/';
-  /** Dummy file for empty folder.*/
+  /** Dummy file for empty folders, created by previous versions. */
   static final String DUMMY = ".empty";
+  /** Name of the directory that contains the raw files of a database. */
+  private static final String RAW = "raw";
+  /** Error message. */
+  private static final String PERM_NEEDED = "% permission needed.";
   /** Database. */
   protected final String db;
   /** Resource path (without leading '/'). */
@@ -57,8 +59,15 @@ public class BXResource implements Resource {
 
   @Override
   public Object authenticate(final String user, final String pass) {
-    if(user != null) http.credentials(user, pass);
-    return user;
+    if(user == null) return null;
+    http.credentials(user, pass);
+    // only return a tag if the credentials are valid
+    try {
+      http.session();
+      return user;
+    } catch(final IOException ex) {
+      return null;
+    }
   }
 
   @Override
@@ -78,7 +87,9 @@ public class BXResource implements Resource {
 
   @Override
   public String getUniqueId() {
-    return null;
+    // unique id changes whenever the resource is modified
+    return mdate == null ? null : Integer.toHexString((db + SEP + path).hashCode()) +
+        '-' + Long.toHexString(mdate.getTime());
   }
 
   @Override
@@ -93,32 +104,38 @@ public class BXResource implements Resource {
   }
 
   /**
-   * Checks a folder for a dummy document and delete it.
+   * Registers a folder, so that it is retained if it contains no more resources.
    * @param p path
    * @throws IOException I/O exception
    */
-  void deleteDummy(final String p) throws IOException {
-    final String dummy = p + SEP + DUMMY;
-    if(!pathExists(db, dummy, http)) return;
-
-    // path contains dummy document
-    final LocalSession session = http.session();
-    session.execute(new Open(db));
-    session.execute(new Delete(dummy));
+  void retain(final String p) throws IOException {
+    locked(db, true, http, new BXCode<Object>(this) {
+      @Override
+      public Object get() throws IOException {
+        BXFolders.add(http, db, p);
+        return null;
+      }
+    });
   }
 
   /**
-   * Checks if a folder is empty and create a dummy document.
-   * @param p path
-   * @throws IOException I/O exception
+   * Returns the name of the authenticated user, which will be the owner of locks.
+   * @return user name, or {@code null} if the user cannot be authenticated
    */
-  void createDummy(final String p) throws IOException {
-    // check if path is a folder and is empty
-    if(p.matches("[^/]") || pathExists(db, p, http)) return;
+  String owner() {
+    try {
+      return http.user();
+    } catch(final IOException ex) {
+      return null;
+    }
+  }
 
-    final LocalSession session = http.session();
-    session.execute(new Open(db));
-    session.store(p + SEP + DUMMY, new ArrayInput(Token.EMPTY));
+  /**
+   * Discards the cached resource metadata. Must be called after updates.
+   * @param d name of the updated database (may be {@code null})
+   */
+  void invalidate(final String d) {
+    BXSnapshot.get(http).invalidate(d);
   }
 
   /**
@@ -129,14 +146,7 @@ public class BXResource implements Resource {
    * @throws IOException I/O exception
    */
   static boolean dbExists(final String db, final HTTPContext http) throws IOException {
-    final LocalQuery q = http.session().query(_DB_LIST.args() + "[. = $db]");
-    q.bind("db", db);
-    try {
-      if(q.more()) return true;
-    } finally {
-      q.close();
-    }
-    return false;
+    return BXSnapshot.get(http).dbExists(db);
   }
 
   /**
@@ -158,6 +168,16 @@ public class BXResource implements Resource {
     return s == null || s.isEmpty() || s.charAt(0) != SEP ? s : s.substring(1);
   }
 
+  /**
+   * Removes leading and trailing slashes from a path.
+   * @param path path
+   * @return normalized path
+   */
+  static String normalize(final String path) {
+    final String p = stripLeadingSlash(path);
+    return p.endsWith(String.valueOf(SEP)) ? p.substring(0, p.length() - 1) : p;
+  }
+
   /**
    * Creates a folder or document resource.
    * @param db name of database
@@ -169,7 +189,9 @@ public class BXResource implements Resource {
   static BXResource resource(final String db, final String path, final HTTPContext http)
       throws IOException {
 
-    return exists(db, path, http) ? file(db, path, http) : pathExists(db, path, http) ?
+    final BXSnapshot snap = BXSnapshot.get(http);
+    final BXSnapshot.Meta meta = snap.file(db, path);
+    return meta != null ? file(meta, db, http) : snap.folder(db, path) ?
         folder(db, path, http) : null;
   }
 
@@ -183,27 +205,20 @@ public class BXResource implements Resource {
    */
   static BXFile file(final String db, final String path, final HTTPContext http)
       throws IOException {
+    final BXSnapshot.Meta meta = BXSnapshot.get(http).file(db, path);
+    return meta == null ? null : file(meta, db, http);
+  }
 
-    final LocalQuery q = http.session().query(
-        "let $a := " + _DB_LIST_DETAILS.args("$d", "$p") +
-        "return (" +
-            "$a/@raw/data()," +
-            "$a/@content-type/data()," +
-            "$a/@modified-date/data()," +
-            "$a/@size/data()," +
-            "$a/text())");
-    q.bind("d", db);
-    q.bind("p", path);
-    try {
-      final boolean raw = Boolean.parseBoolean(q.next());
-      final String ctype = q.next();
-      final long mod = DateTime.parse(q.next());
-      final Long size = raw ? Long.valueOf(q.next()) : null;
-      final String pth = stripLeadingSlash(q.next());
-      return new BXFile(db, pth, mod, raw, ctype, size, http);
-    } finally {
-      q.close();
-    }
+  /**
+   * Creates a file resource from the specified metadata.
+   * @param meta resource metadata
+   * @param db name of database
+   * @param http http context
+   * @return file resource
+   */
+  static BXFile file(final BXSnapshot.Meta meta, final String db,
+      final HTTPContext http) {
+    return new BXFile(db, meta.path, meta.mdate, meta.raw, meta.ctype, meta.size, http);
   }
 
   /**
@@ -240,28 +255,142 @@ public class BXResource implements Resource {
    */
   static boolean pathExists(final String db, final String path, final HTTPContext http)
       throws IOException {
-
-    final LocalQuery q = http.session().query(COUNT.args(_DB_LIST.args("$d", "$p")));
-    q.bind("d", db);
-    q.bind("p", path);
-    return !q.execute().equals("0");
+    final BXSnapshot snap = BXSnapshot.get(http);
+    return snap.file(db, path) != null || snap.folder(db, path);
   }
 
   /**
-   * Checks if any resource with the specified name exists.
+   * Returns the file or directory that stores the raw resources of a database path.
    * @param db name of database
    * @param path resource path
    * @param http http context
-   * @return number of documents
+   * @return file
+   */
+  static IOFile binary(final String db, final String path, final HTTPContext http) {
+    return new IOFile(new IOFile(new IOFile(BXCatalog.dir(http), db), RAW), path);
+  }
+
+  /**
+   * Runs the specified code while a database is locked. The current user is
+   * authenticated, and it is checked if the user is allowed to read or write the
+   * database. Locks are acquired by registering a query that accesses the database.
+   * @param db name of database
+   * @param write lock for writing, and check for write permissions
+   * @param http http context
+   * @param code code to be run
+   * @param <E> result type
+   * @return result of the code
    * @throws IOException I/O exception
    */
-  private static boolean exists(final String db, final String path,
-      final HTTPContext http) throws IOException {
+  static <E> E locked(final String db, final boolean write, final HTTPContext http,
+      final BXCode<E> code) throws IOException {
+    return locked(db, null, write, http, code);
+  }
+
+  /**
+   * Runs the specified code while a database is locked. If a source database is
+   * specified, it is locked as well, and it is checked if the user is allowed to
+   * read it.
+   * @param db name of database
+   * @param src name of source database (may be {@code null})
+   * @param write lock for writing, and check for write permissions
+   * @param http http context
+   * @param code code to be run
+   * @param <E> result type
+   * @return result of the code
+   * @throws IOException I/O exception
+   */
+  static <E> E locked(final String db, final String src, final boolean write,
+      final HTTPContext http, final BXCode<E> code) throws IOException {
+
+    // create context with the permissions of the authenticated user
+    final String user = http.user();
+    final Context ctx = new Context(http.context(), null);
+    ctx.user = ctx.users.get(user);
+
+    final String exists = src == null ? "()" : _DB_EXISTS.args(quote(src));
+    final QueryProcessor qp = new QueryProcessor(write ?
+      "if(false()) then " + _DB_DELETE.args(quote(db), "''") + " else " + exists :
+      "(" + _DB_EXISTS.args(quote(db)) + ", " + exists + ')', ctx);
+    ctx.register(qp);
+    try {
+      // opening the databases checks for read permissions
+      if(src != null) Close.close(Open.open(src, ctx), ctx);
+      final Data data = Open.open(db, ctx);
+      try {
+        if(write && !ctx.perm(Perm.WRITE, data.meta))
+          throw new BaseXException(PERM_NEEDED, Perm.WRITE);
+      } finally {
+        Close.close(data, ctx);
+      }
+      return code.get();
+    } finally {
+      qp.close();
+      ctx.unregister(qp);
+    }
+  }
+
+  /**
+   * Copies the raw files of this resource to a path of another database.
+   * The files are copied on file system level; if files have been copied, the
+   * time stamp of the target database is updated. The method must be called while
+   * the target database is locked for writing.
+   * @param tdb target database
+   * @param tpath target path
+   * @throws IOException I/O exception
+   */
+  void copyRaw(final String tdb, final String tpath) throws IOException {
+    final IOFile source = binary(db, path, http), target = binary(tdb, tpath, http);
+    if(!source.path().equals(target.path()) && copy(source, target))
+      BXCatalog.touch(tdb, http);
+  }
+
+  /**
+   * Recursively copies a file or directory.
+   * @param source source
+   * @param target target
+   * @return {@code true} if at least one file has been copied
+   * @throws IOException I/O exception
+   */
+  private static boolean copy(final IOFile source, final IOFile target)
+      throws IOException {
 
-    final LocalQuery q = http.session().query(_DB_EXISTS.args("$d", "$p"));
-    q.bind("d", db);
-    q.bind("p", path);
-    return q.execute().equals(Text.TRUE);
+    if(source.isDir()) {
+      boolean copied = false;
+      for(final IOFile ch : source.children()) {
+        copied |= copy(ch, new IOFile(target, ch.name()));
+      }
+      return copied;
+    }
+    if(!source.exists()) return false;
+
+    final File dir = target.file().getParentFile();
+    if(!dir.isDirectory() && !dir.mkdirs())
+      throw new FileNotFoundException(dir.getPath());
+    final FileInputStream fis = new FileInputStream(source.file());
+    try {
+      final FileOutputStream fos = new FileOutputStream(target.file());
+      try {
+        // transfer the bytes without copying them to the heap
+        final FileChannel in = fis.getChannel(), out = fos.getChannel();
+        final long size = in.size();
+        for(long pos = 0; pos < size;) pos += in.transferTo(pos, size - pos, out);
+      } finally {
+        fos.close();
+      }
+    } finally {
+      fis.close();
+    }
+    return true;
+  }
+
+  /**
+   * Returns a quoted database name.
+   * @param db name of database
+   * @return quoted name
+   */
+  private static String quote(final String db) {
+    return '"' + db.replace("\"", "\"\"") + '"';
   }
 
   /**
@@ -273,16 +402,6 @@ public class BXResource implements Resource {
    */
   private static long timestamp(final String db, final HTTPContext http)
       throws IOException {
-
-    final String s = DATA.args(_DB_INFO.args("$p") + "/descendant::" + TIME + "[1]");
-    final LocalQuery q = http.session().query(s);
-    q.bind("p", db);
-    try {
-      // retrieve and parse timestamp
-      return DateTime.parse(q.execute(), DateTime.DATETIME).getTime();
-    } catch(final Exception ex) {
-      Util.errln(ex);
-      return 0;
-    }
+    return BXSnapshot.get(http).timestamp(db);
   }
 }
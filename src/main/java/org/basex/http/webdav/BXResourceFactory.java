@@ -1,7 +1,6 @@
 package org.basex.http.webdav;
 
 import static org.basex.http.webdav.BXNotAuthorizedResource.*;
-import static org.basex.http.webdav.BXServletRequest.*;
 
 import javax.servlet.http.*;
 
@@ -20,24 +19,30 @@ import com.bradmcevoy.http.*;
  * @author Dimitar Popov
  */
 public final class BXResourceFactory implements ResourceFactory {
-  /** HTTP Context. */
-  private final HTTPContext http;
+  /** Name of the request attribute that references the HTTP context. */
+  static final String CONTEXT = HTTPContext.class.getName();
+
+  @Override
+  public Resource getResource(final String host, final String dbpath) {
+    return getResource(host, dbpath, (BXServletRequest) HttpManager.request());
+  }
 
   /**
-   * Constructor.
-   * @param ht http context
+   * Returns the resource with the specified path.
+   * @param host host name
+   * @param dbpath resource path
+   * @param request current request
+   * @return resource, or {@code null} if it does not exist
    */
-  BXResourceFactory(final HTTPContext ht) {
-    http = ht;
-  }
+  Resource getResource(final String host, final String dbpath,
+      final BXServletRequest request) {
 
-  @Override
-  public Resource getResource(final String host, final String dbpath) {
-    final Auth a = HttpManager.request().getAuthorization();
+    final HttpServletRequest r = request.request();
+    final HTTPContext http = (HTTPContext) r.getAttribute(CONTEXT);
+    final Auth a = request.getAuthorization();
     if(a != null) http.credentials(a.getUser(), a.getPassword());
 
     try {
-      final HttpServletRequest r = getRequest();
       Path p = Path.path(dbpath);
       if(!r.getContextPath().isEmpty()) p = p.getStripFirst();
       if(!r.getServletPath().isEmpty()) p = p.getStripFirst();
@@ -1,7 +1,5 @@
 package org.basex.http.webdav;
 
-import static org.basex.query.func.Function.*;
-
 import java.io.*;
 import java.util.*;
 import java.util.List;
@@ -9,7 +7,6 @@ import java.util.List;
 import org.basex.core.cmd.*;
 import org.basex.http.*;
 import org.basex.server.*;
-import org.basex.util.*;
 
 import com.bradmcevoy.http.*;
 import com.bradmcevoy.http.exceptions.*;
@@ -66,19 +63,8 @@ public final class BXRoot extends BXFolder {
       @Override
       public List<BXResource> get() throws IOException {
         final List<BXResource> dbs = new ArrayList<BXResource>();
-        final LocalQuery q = http.session().query(
-            "for $d in " + _DB_LIST_DETAILS.args() +
-            "return ($d/text(), $d/@modified-date/data())");
-        try {
-          while(q.more()) {
-            final String name = q.next();
-            final long mod = DateTime.parse(q.next());
-            dbs.add(new BXDatabase(name, mod, http));
-          }
-        } catch(final Exception ex) {
-          Util.errln(ex);
-        } finally {
-          q.close();
+        for(final Map.Entry<String, Long> db : BXCatalog.databases(http).entrySet()) {
+          dbs.add(new BXDatabase(db.getKey(), db.getValue(), http));
         }
         return dbs;
       }
@@ -92,6 +78,7 @@ public final class BXRoot extends BXFolder {
       public BXDatabase get() throws IOException {
         final String dbname = dbname(newName);
         http.session().execute(new CreateDB(dbname));
+        invalidate(dbname);
         return database(dbname, http);
       }
     }.eval();
@@ -104,7 +91,7 @@ public final class BXRoot extends BXFolder {
     return new BXCode<BXDatabase>(this) {
       @Override
       public BXDatabase get() throws IOException {
-        addFile(newName, input);
+        addFile(newName, input, length);
         return database(dbname(newName), http);
       }
     }.eval();
@@ -53,18 +53,6 @@ public final class BXServletRequest extends AbstractRequest {
       TYPE_CONTENTS.put(entry.getValue(), entry.getKey());
   }
 
-  /** Thread local variable to hold the current request. */
-  private static final ThreadLocal<HttpServletRequest> REQUEST =
-      new ThreadLocal<HttpServletRequest>();
-
-  /**
-   * Get the current request.
-   * @return the current {@link HttpServletRequest}
-   */
-  public static HttpServletRequest getRequest() {
-    return REQUEST.get();
-  }
-
   /**
    * Constructor.
    * @param r HTTP servlet request
@@ -73,7 +61,14 @@ public final class BXServletRequest extends AbstractRequest {
     req = r;
     method = Method.valueOf(r.getMethod());
     url = r.getRequestURL().toString(); // MiltonUtils.stripContext(r);
-    REQUEST.set(r);
+  }
+
+  /**
+   * Returns the wrapped servlet request.
+   * @return servlet request
+   */
+  HttpServletRequest request() {
+    return req;
   }
 
   @Override
@@ -22,10 +22,6 @@ import com.bradmcevoy.http.Cookie;
  * @author Dimitar Popov
  */
 public final class BXServletResponse extends AbstractResponse {
-  /** Thread local variable to hold the current response. */
-  private static final ThreadLocal<HttpServletResponse> RESPONSE =
-      new ThreadLocal<HttpServletResponse>();
-
   /** HTTP servlet response. */
   private final HttpServletResponse res;
   /** Response headers. */
@@ -39,7 +35,6 @@ public final class BXServletResponse extends AbstractResponse {
    */
   public BXServletResponse(final HttpServletResponse r) {
     res = r;
-    RESPONSE.set(r);
   }
 
   @Override
@@ -0,0 +1,204 @@
+package org.basex.http.webdav;
+
+import static org.basex.http.webdav.BXResource.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.http.*;
+import org.basex.util.*;
+
+/**
+ * Snapshot of the resource metadata that is accessed by a single WebDAV request.
+ * Resources are looked up in the directory index of a database, which lists
+ * directories one level at a time, so that the repeated resource lookups of a
+ * WebDAV operation can be answered from memory.
+ * Before cached metadata is returned, the user of the request is authenticated,
+ * and only indexes that have been built for the same user are used.
+ * Indexes are validated against the database timestamp once per request; the
+ * validation can be skipped for a short time, which is specified via the
+ * {@code org.basex.webdavttl} option (milliseconds).
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class BXSnapshot {
+  /** Name of the request attribute. */
+  private static final String ATTRIBUTE = BXSnapshot.class.getName();
+  /** Option: time (ms) for which indexes are used without validation. */
+  private static final String TTL = Prop.DBPREFIX + "webdavttl";
+
+  /** HTTP context. */
+  private final HTTPContext http;
+  /** Validated directory indexes, indexed by database. */
+  private final HashMap<String, BXIndex> indexes = new HashMap<String, BXIndex>();
+  /** Database timestamps ({@code null} values: database does not exist). */
+  private final HashMap<String, Long> timestamps = new HashMap<String, Long>();
+
+  /**
+   * Constructor.
+   * @param h http context
+   */
+  private BXSnapshot(final HTTPContext h) {
+    http = h;
+  }
+
+  /**
+   * Returns the snapshot of the current request.
+   * @param http http context
+   * @return snapshot
+   */
+  static BXSnapshot get(final HTTPContext http) {
+    BXSnapshot snap = (BXSnapshot) http.req.getAttribute(ATTRIBUTE);
+    if(snap == null) {
+      snap = new BXSnapshot(http);
+      http.req.setAttribute(ATTRIBUTE, snap);
+    }
+    return snap;
+  }
+
+  /**
+   * Checks if the specified database exists.
+   * @param db name of database
+   * @return result of check
+   * @throws IOException I/O exception
+   */
+  boolean dbExists(final String db) throws IOException {
+    return catalog(db) != null;
+  }
+
+  /**
+   * Returns the time stamp of a database.
+   * @param db name of database
+   * @return database time stamp
+   * @throws IOException I/O exception
+   */
+  long timestamp(final String db) throws IOException {
+    final Long time = catalog(db);
+    return time != null ? time : 0;
+  }
+
+  /**
+   * Returns the metadata of a single resource.
+   * @param db name of database
+   * @param path resource path
+   * @return metadata, or {@code null} if the resource does not exist
+   * @throws IOException I/O exception
+   */
+  Meta file(final String db, final String path) throws IOException {
+    final String p = normalize(path);
+    return p.isEmpty() ? null : index(db).file(p, http);
+  }
+
+  /**
+   * Checks if the specified path is a folder, i.e., if it contains any resources.
+   * @param db name of database
+   * @param path folder path
+   * @return result of check
+   * @throws IOException I/O exception
+   */
+  boolean folder(final String db, final String path) throws IOException {
+    return dir(db, path) != null || BXFolders.contains(http, db, path);
+  }
+
+  /**
+   * Returns the specified directory.
+   * @param db name of database
+   * @param path folder path
+   * @return directory, or {@code null} if it does not exist
+   * @throws IOException I/O exception
+   */
+  BXIndex.Dir dir(final String db, final String path) throws IOException {
+    return index(db).dir(normalize(path), http);
+  }
+
+  /**
+   * Discards all cached metadata. Must be called after database updates.
+   * @param db name of the updated database (may be {@code null})
+   */
+  void invalidate(final String db) {
+    indexes.clear();
+    timestamps.clear();
+    BXCatalog.invalidate();
+    if(db != null) BXIndex.remove(db);
+  }
+
+  // PRIVATE METHODS ====================================================================
+
+  /**
+   * Returns the timestamp of a database from the database catalog.
+   * @param db name of database
+   * @return timestamp, or {@code null} if the database does not exist
+   * @throws IOException I/O exception
+   */
+  private Long catalog(final String db) throws IOException {
+    if(!timestamps.containsKey(db)) timestamps.put(db, BXCatalog.timestamp(db, http));
+    return timestamps.get(db);
+  }
+
+  /**
+   * Returns the validated directory index of the specified database.
+   * @param db name of database
+   * @return index
+   * @throws IOException I/O exception
+   */
+  private BXIndex index(final String db) throws IOException {
+    BXIndex index = indexes.get(db);
+    if(index != null) return index;
+
+    // authenticate user; skip validation if index has recently been validated
+    final String user = http.user();
+    index = BXIndex.cached(user, db);
+    final long time = System.currentTimeMillis();
+    if(index == null || time - index.checked > ttl()) {
+      final long ts = timestamp(db);
+      if(index == null || index.timestamp != ts) {
+        index = BXIndex.create(user, db, ts);
+      } else {
+        index.checked = time;
+      }
+    }
+    indexes.put(db, index);
+    return index;
+  }
+
+  /**
+   * Returns the time for which indexes are used without validation.
+   * @return time in milliseconds
+   */
+  private static long ttl() {
+    final String ttl = System.getProperty(TTL);
+    return ttl == null ? 0 : Math.max(0, Token.toLong(ttl));
+  }
+
+  /** Metadata of a single resource. */
+  static final class Meta {
+    /** Resource path (without leading slash). */
+    final String path;
+    /** Raw flag. */
+    final boolean raw;
+    /** Content type. */
+    final String ctype;
+    /** Modification date. */
+    final long mdate;
+    /** Size in bytes (only available for raw files). */
+    final Long size;
+
+    /**
+     * Constructor.
+     * @param p resource path
+     * @param r raw flag
+     * @param c content type
+     * @param m modification date
+     * @param s size
+     */
+    Meta(final String p, final boolean r, final String c, final long m, final Long s) {
+      path = p;
+      raw = r;
+      ctype = c;
+      mdate = m;
+      size = s;
+    }
+  }
+}
@@ -1,10 +1,17 @@
 package org.basex.http.webdav;
 
+import static javax.servlet.http.HttpServletResponse.*;
+import static org.basex.http.HTTPMethod.*;
+import static org.basex.http.HTTPText.*;
+import static org.basex.http.webdav.BXNotAuthorizedResource.*;
+
 import java.io.*;
 
 import org.basex.http.*;
 
+import com.bradmcevoy.common.*;
 import com.bradmcevoy.http.*;
+import com.bradmcevoy.http.http11.*;
 
 /**
  * WebDAV servlet.
@@ -13,17 +20,120 @@ import com.bradmcevoy.http.*;
  * @author Dimitar Popov
  */
 public final class WebDAVServlet extends BaseXServlet {
+  /** Status code: resource is locked. */
+  private static final int SC_LOCKED = 423;
+  /** Resource factory. */
+  private final BXResourceFactory factory = new BXResourceFactory();
+  /** Entity tag generator, which is also used by the request manager. */
+  private final ETagGenerator etags = new DefaultETagGenerator();
+  /** Request manager (created when the first request is processed). */
+  private HttpManager manager;
+
   @Override
   protected void run(final HTTPContext http) throws IOException {
-    final HttpManager manager = new HttpManager(new BXResourceFactory(http));
-    final Request request = new BXServletRequest(http.req);
+    http.req.setAttribute(BXResourceFactory.CONTEXT, http);
+    final BXServletRequest request = new BXServletRequest(http.req);
     final Response response = new BXServletResponse(http.res);
 
     try {
-      manager.process(request, response);
+      if(preconditions(request, http) && lockable(request, http))
+        manager().process(request, response);
     } finally {
       http.res.getOutputStream().flush();
       http.res.flushBuffer();
     }
   }
+
+  /**
+   * Returns the request manager, which is shared by all requests.
+   * @return request manager
+   */
+  private synchronized HttpManager manager() {
+    if(manager == null) manager = new HttpManager(factory);
+    return manager;
+  }
+
+  /**
+   * Evaluates the {@code If-Match} and {@code If-None-Match} headers of GET, HEAD
+   * and PUT requests, and assigns a status code if the request need not be processed.
+   * The headers are only evaluated for authenticated and authorized requests;
+   * all other requests are passed on to the request manager.
+   * Support for partial requests is announced for GET and HEAD requests.
+   * @param request request
+   * @param http http context
+   * @return {@code true} if the request is to be processed
+   */
+  private boolean preconditions(final BXServletRequest request, final HTTPContext http) {
+    final HTTPMethod m = http.method;
+    final String match = http.req.getHeader(IF_MATCH);
+    final String noneMatch = http.req.getHeader(IF_NONE_MATCH);
+    if(m != GET && m != HEAD && (m != PUT || match == null && noneMatch == null))
+      return true;
+
+    final Auth auth = request.getAuthorization();
+    if(auth == null) return true;
+    final Resource res = factory.getResource(request.getHostHeader(),
+        request.getAbsolutePath(), request);
+    if(res == NOAUTH) return true;
+
+    String tag = null;
+    if(res != null) {
+      final Object user = res.authenticate(auth.getUser(), auth.getPassword());
+      if(user == null) return true;
+      auth.setTag(user);
+      if(!res.authorise(request, request.getMethod(), auth)) return true;
+      if(res instanceof BXFile && ((BXFile) res).raw)
+        http.res.setHeader(ACCEPT_RANGES, BYTES);
+      tag = etags.generateEtag(res);
+    }
+
+    if(match != null && !matches(match, tag)) {
+      http.res.setStatus(SC_PRECONDITION_FAILED);
+      return false;
+    }
+    if(noneMatch != null && matches(noneMatch, tag)) {
+      http.res.setStatus(m == PUT ? SC_PRECONDITION_FAILED : SC_NOT_MODIFIED);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Rejects LOCK requests on resources that do not exist yet, but have already been
+   * locked (lock-null resources), with status code 423.
+   * @param request request
+   * @param http http context
+   * @return {@code true} if the request is to be processed
+   */
+  private boolean lockable(final BXServletRequest request, final HTTPContext http) {
+    if(!"LOCK".equals(http.req.getMethod())) return true;
+    final String host = request.getHostHeader(), abs = request.getAbsolutePath();
+    if(factory.getResource(host, abs, request) != null) return true;
+
+    final Path path = Path.path(abs);
+    if(path.getParent() == null) return true;
+    final Resource parent = factory.getResource(host, path.getParent().toString(),
+        request);
+    if(!(parent instanceof BXFolder) || !((BXFolder) parent).lockedChild(path.getName()))
+      return true;
+    http.res.setStatus(SC_LOCKED);
+    return false;
+  }
+
+  /**
+   * Checks if an entity tag list contains the entity tag of a resource.
+   * @param tags comma-separated list of entity tags
+   * @param tag entity tag of the resource (may be {@code null})
+   * @return result of check
+   */
+  private static boolean matches(final String tags, final String tag) {
+    if(tag == null) return false;
+    for(final String tg : tags.split(",")) {
+      String t = tg.trim();
+      if(t.equals("*")) return true;
+      if(t.startsWith("W/")) t = t.substring(2);
+      if(t.replace("\"", "").equals(tag)) return true;
+    }
+    return false;
+  }
 }
@@ -6,6 +6,7 @@ import java.io.*;
 
 import javax.xml.parsers.*;
 
+import org.basex.api.xmldb.*;
 import org.junit.*;
 import org.w3c.dom.*;
 import org.xml.sax.*;
@@ -21,6 +22,8 @@ import org.xmldb.api.modules.*;
  */
 @SuppressWarnings("all")
 public class CollectionTest extends XMLDBBaseTest {
+  /** Database. */
+  Database database;
   /** Collection. */
   Collection coll;
 
@@ -28,7 +31,7 @@ public class CollectionTest extends XMLDBBaseTest {
   public void setUp() throws Exception {
     createDB();
     final Class<?> c = Class.forName(DRIVER);
-    final Database database = (Database) c.newInstance();
+    database = (Database) c.newInstance();
     coll = database.getCollection(PATH, LOGIN, PW);
   }
 
@@ -122,6 +125,25 @@ public class CollectionTest extends XMLDBBaseTest {
     checkClosed(code);
   }
 
+  @Test
+  public void testSharedData() throws Exception {
+    // open second collection of the same database
+    final Collection coll2 = database.getCollection(PATH, LOGIN, PW);
+    final Resource res = coll2.createResource("shared", XMLResource.RESOURCE_TYPE);
+    res.setContent("<xml/>");
+    coll2.storeResource(res);
+
+    // updates are visible in the first collection
+    assertNotNull("Resource not found.", coll.getResource("shared"));
+    final XPathQueryService serv = (XPathQueryService) coll.getService(
+        "XPathQueryService", "1.0");
+    assertEquals("Wrong result size.", 1, serv.query("//xml").getSize());
+
+    // closing one collection does not affect the other
+    coll2.close();
+    assertEquals("Wrong number of documents.", 2, coll.getResourceCount());
+  }
+
   @Test
   public void testGetResourceCount() throws Exception {
     // tests could be added for here multiple documents
@@ -143,6 +165,16 @@ public class CollectionTest extends XMLDBBaseTest {
     checkClosed(code);
   }
 
+  @Test
+  public void testListResourcePage() throws Exception {
+    final BXCollection bx = (BXCollection) coll;
+    assertEquals(1, bx.listResources(null, 0, 10).length);
+    assertEquals(DOC1, bx.listResources(DOC1, 0, 1)[0]);
+    assertEquals(0, bx.listResources(null, 1, 10).length);
+    assertEquals(0, bx.listResources(null, 0, 0).length);
+    assertEquals(0, bx.listResources("unknown", 0, 10).length);
+  }
+
   @Test
   public void testCreateResource() throws Exception {
     // test unknown resource type
@@ -237,6 +269,33 @@ public class CollectionTest extends XMLDBBaseTest {
     });
   }
 
+  @Test
+  public void testTransaction() throws Exception {
+    final TransactionService ts = (TransactionService)
+        coll.getService("TransactionService", "1.0");
+    assertNotNull("Transaction service expected.", ts);
+
+    // resources are stored when the transaction is committed
+    ts.begin();
+    for(int i = 0; i < 3; i++) {
+      final Resource res = coll.createResource("Batch" + i, XMLResource.RESOURCE_TYPE);
+      res.setContent("<x>" + i + "</x>");
+      coll.storeResource(res);
+    }
+    assertEquals("Wrong number of documents.", 1, coll.getResourceCount());
+    ts.commit();
+    assertEquals("Wrong number of documents.", 4, coll.getResourceCount());
+
+    // resources are discarded if the transaction is rolled back
+    ts.begin();
+    final Resource res = coll.createResource("Rollback", XMLResource.RESOURCE_TYPE);
+    res.setContent("<x/>");
+    coll.storeResource(res);
+    ts.rollback();
+    assertEquals("Wrong number of documents.", 4, coll.getResourceCount());
+    assertNull(coll.getResource("Rollback"));
+  }
+
   @Test
   public void testRemoveResource() throws Exception {
     final Resource res =
@@ -281,6 +340,8 @@ public class CollectionTest extends XMLDBBaseTest {
         fail("Returned ID not unique.");
       }
     }
+    // successive ids must differ
+    assertFalse("Returned ID not unique.", code.run().equals(code.run()));
     checkClosed(code);
   }
 
@@ -31,6 +31,9 @@ public class DatabaseTest extends XMLDBBaseTest {
   @Test
   public void testAcceptsURI() throws Exception {
     database.acceptsURI(PATH);
+    // remote databases
+    database.acceptsURI("xmldb:basex://server:1984/" + COLL);
+    database.acceptsURI("basex://server/" + COLL);
 
     try {
       database.acceptsURI("bla");
@@ -0,0 +1,197 @@
+package org.basex.test.api.xmldb;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import javax.xml.parsers.*;
+
+import org.basex.*;
+import org.basex.core.cmd.*;
+import org.basex.server.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.w3c.dom.*;
+import org.xml.sax.*;
+import org.xml.sax.helpers.*;
+import org.xmldb.api.base.*;
+import org.xmldb.api.modules.*;
+
+/**
+ * This class tests the XMLDB/API implementation in client/server mode.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+@SuppressWarnings("all")
+public class RemoteTest extends XMLDBBaseTest {
+  /** Server port. */
+  private static final int PORT = 9994;
+  /** Remote database/document path. */
+  private static final String REMOTE = "xmldb:" + NAMELC + "://127.0.0.1:" + PORT + '/';
+  /** Server instance. */
+  private static BaseXServer server;
+
+  /** Database. */
+  private Database database;
+  /** Collection. */
+  private Collection coll;
+
+  /**
+   * Starts the server and creates the test database.
+   * @throws Exception exception
+   */
+  @BeforeClass
+  public static void start() throws Exception {
+    server = new BaseXServer("-z", "-p" + PORT, "-e" + (PORT + 1));
+    final ClientSession cs = new ClientSession(LOCALHOST, PORT, LOGIN, PW);
+    try {
+      cs.execute(new CreateDB(COLL, DOCPATH + DOC1));
+    } finally {
+      cs.close();
+    }
+  }
+
+  /**
+   * Stops the server and drops the test database. The database is dropped
+   * after the server has been stopped, as it is still opened by pooled sessions.
+   * @throws Exception exception
+   */
+  @AfterClass
+  public static void stop() throws Exception {
+    server.stop();
+    dropDB();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    database = (Database) Class.forName(DRIVER).newInstance();
+    coll = database.getCollection(REMOTE + COLL, LOGIN, PW);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    coll.close();
+  }
+
+  @Test
+  public void testGetCollection() throws Exception {
+    assertNotNull("Collection expected.", coll);
+    assertNull("Collection does not exist.",
+        database.getCollection(REMOTE + "unknown", LOGIN, PW));
+
+    // credentials must be supplied
+    try {
+      database.getCollection(REMOTE + COLL, null, null);
+      fail("Missing credentials were accepted.");
+    } catch(final XMLDBException ex) {
+      assertEquals("Wrong error code.", ErrorCodes.PERMISSION_DENIED, ex.errorCode);
+    }
+    // wrong credentials are rejected by the server
+    try {
+      database.getCollection(REMOTE + COLL, LOGIN, "wrong");
+      fail("Wrong credentials were accepted.");
+    } catch(final XMLDBException ex) { }
+  }
+
+  @Test
+  public void testResources() throws Exception {
+    assertEquals("Wrong count.", 1, coll.getResourceCount());
+    assertEquals("Wrong id.", DOC1, coll.listResources()[0]);
+
+    // store and retrieve a document
+    final Resource res = coll.createResource(DOC2, XMLResource.RESOURCE_TYPE);
+    res.setContent(new String(read(DOCPATH + DOC2), "UTF-8"));
+    coll.storeResource(res);
+    assertEquals("Wrong count.", 2, coll.getResourceCount());
+    // contents are retrieved on demand
+    final XMLResource doc = (XMLResource) coll.getResource(DOC2);
+    assertNotNull("Resource expected.", doc);
+    assertEquals("Wrong id.", DOC2, doc.getDocumentId());
+    assertTrue("Wrong content.", doc.getContent().toString().contains("<second"));
+    assertEquals("Wrong DOM.", "second",
+        ((Document) doc.getContentAsDOM()).getDocumentElement().getNodeName());
+
+    // remove document
+    coll.removeResource(res);
+    assertEquals("Wrong count.", 1, coll.getResourceCount());
+    assertNull("Resource was not removed.", coll.getResource(DOC2));
+  }
+
+  @Test
+  public void testStore() throws Exception {
+    // byte array
+    XMLResource res = (XMLResource) coll.createResource(DOC2, XMLResource.RESOURCE_TYPE);
+    res.setContent(Token.token("<x>1</x>"));
+    coll.storeResource(res);
+    assertEquals("Wrong content.", "<x>1</x>", coll.getResource(DOC2).getContent());
+
+    // DOM document
+    final Document dom = DocumentBuilderFactory.newInstance().newDocumentBuilder().
+        parse(new InputSource(new StringReader("<x>2</x>")));
+    res = (XMLResource) coll.createResource(DOC2, XMLResource.RESOURCE_TYPE);
+    res.setContentAsDOM(dom);
+    coll.storeResource(res);
+    assertEquals("Wrong content.", "<x>2</x>", coll.getResource(DOC2).getContent());
+
+    // SAX stream
+    res = (XMLResource) coll.createResource(DOC2, XMLResource.RESOURCE_TYPE);
+    final XMLReader reader = XMLReaderFactory.createXMLReader();
+    reader.setContentHandler(res.setContentAsSAX());
+    reader.parse(new InputSource(new StringReader("<x>3</x>")));
+    coll.storeResource(res);
+    assertEquals("Wrong content.", "<x>3</x>", coll.getResource(DOC2).getContent());
+
+    coll.removeResource(res);
+    assertEquals("Wrong count.", 1, coll.getResourceCount());
+  }
+
+  @Test
+  public void testQuery() throws Exception {
+    final XPathQueryService serv =
+        (XPathQueryService) coll.getService("XPathQueryService", "1.0");
+    assertEquals("Wrong property.", "false", serv.getProperty("lazy"));
+    serv.setProperty("lazy", "true");
+    serv.setProperty("lookahead", "2");
+
+    // streamed results
+    final ResourceIterator iter = serv.query("1 to 5").getIterator();
+    for(int i = 1; i <= 5; i++) {
+      assertTrue("Result expected.", iter.hasMoreResources());
+      assertEquals("Wrong result.", String.valueOf(i), iter.nextResource().getContent());
+    }
+    assertFalse("No results expected.", iter.hasMoreResources());
+
+    // completely retrieved results
+    serv.setProperty("lazy", "false");
+    assertEquals("Wrong result size.", 3, serv.query("//node()").getSize());
+    assertEquals("Wrong result size.", 3, serv.queryResource(DOC1, "//node()").getSize());
+
+    // query errors leave the pooled session intact
+    try {
+      serv.query("1+");
+      fail("Buggy query was accepted.");
+    } catch(final XMLDBException ex) { }
+    assertEquals("Wrong result.", "1", serv.query("1").getResource(0).getContent());
+  }
+
+  @Test
+  public void testPool() throws Exception {
+    // sets are completely retrieved by default: sessions are returned right away
+    final XPathQueryService serv =
+        (XPathQueryService) coll.getService("XPathQueryService", "1.0");
+    for(int i = 0; i < 32; i++) {
+      final ResourceSet set = serv.query("1 to 10");
+      assertEquals("Wrong result.", "1", set.getResource(0).getContent());
+    }
+
+    // cleared sets return their sessions, so more sets than sessions can be opened
+    serv.setProperty("lazy", "true");
+    for(int i = 0; i < 32; i++) {
+      final ResourceSet set = serv.query("1 to 10");
+      assertEquals("Wrong result.", "1", set.getIterator().nextResource().getContent());
+      set.clear();
+    }
+  }
+}
@@ -98,6 +98,54 @@ public class ResourceSetTest extends XMLDBBaseTest {
     assertEquals("Wrong result size.", 0, set.getSize());
   }
 
+  @Test
+  public void testLazy() throws Exception {
+    // retrieve results lazily
+    serv.setProperty("lazy", "true");
+    serv.setProperty("lookahead", "2");
+    assertEquals("Wrong property.", "true", serv.getProperty("lazy"));
+    final ResourceIterator iter = serv.query("1 to 5").getIterator();
+    for(int i = 1; i <= 5; i++) {
+      assertTrue("Result expected.", iter.hasMoreResources());
+      assertEquals("Wrong result.", String.valueOf(i), iter.nextResource().getContent());
+    }
+    assertFalse("No results expected.", iter.hasMoreResources());
+
+    // random access retrieves all remaining results
+    ResourceSet set = serv.query("1 to 5");
+    assertEquals("Wrong result.", "3", set.getResource(2).getContent());
+    assertEquals("Wrong result size.", 5, set.getSize());
+
+    // resources that have already been retrieved are kept
+    set = serv.query("1 to 5");
+    final ResourceIterator it = set.getIterator();
+    assertEquals("Wrong result.", "1", it.nextResource().getContent());
+    assertEquals("Wrong result.", "2", it.nextResource().getContent());
+    assertEquals("Wrong result size.", 5, set.getSize());
+    assertEquals("Wrong result.", "1", set.getResource(0).getContent());
+    assertEquals("Wrong result.", "3", it.nextResource().getContent());
+  }
+
+  @Test
+  public void testLazyModified() throws Exception {
+    serv.setProperty("lazy", "true");
+    serv.setProperty("lookahead", "1");
+    final ResourceIterator iter = serv.query("//node()").getIterator();
+    assertTrue("Result expected.", iter.hasMoreResources());
+    iter.nextResource();
+
+    // modifying the collection invalidates the lazy result
+    final Resource res = coll.createResource(DOC2, XMLResource.RESOURCE_TYPE);
+    res.setContent(read(DOCPATH + DOC2));
+    coll.storeResource(res);
+    try {
+      iter.hasMoreResources();
+      fail("Modification was not detected.");
+    } catch(final XMLDBException ex) {
+      assertEquals("Wrong error code.", ErrorCodes.VENDOR_ERROR, ex.errorCode);
+    }
+  }
+
   @Test
   public void testClear() throws Exception {
     // test created resource
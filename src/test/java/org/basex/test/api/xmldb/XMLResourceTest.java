@@ -115,6 +115,43 @@ public class XMLResourceTest extends XMLDBBaseTest {
     ((XMLResource) coll.getResource(DOC1)).getContentAsSAX(ch);
   }
 
+  @Test
+  public void testGetContentAsSAXNamespaces() throws Exception {
+    final XMLResource doc = (XMLResource) coll.createResource(DOC2,
+        XMLResource.RESOURCE_TYPE);
+    doc.setContent("<a xmlns='A' xmlns:b='B'><b:c d='e'>f</b:c><?g h?></a>");
+    coll.storeResource(doc);
+
+    final StringBuilder sb = new StringBuilder();
+    final DefaultHandler ch = new DefaultHandler() {
+      @Override
+      public void startPrefixMapping(final String pref, final String uri) {
+        sb.append("[" + pref + "=" + uri + "]");
+      }
+      @Override
+      public void startElement(final String u, final String ln, final String qn,
+          final Attributes a) {
+        sb.append("<{" + u + "}" + ln + (a.getLength() == 0 ? "" :
+          " " + a.getQName(0) + "=" + a.getValue(0)) + ">");
+      }
+      @Override
+      public void endElement(final String u, final String ln, final String qn) {
+        sb.append("</" + qn + ">");
+      }
+      @Override
+      public void characters(final char[] ch, final int s, final int l) {
+        sb.append(ch, s, l);
+      }
+      @Override
+      public void processingInstruction(final String t, final String d) {
+        sb.append("<?" + t + " " + d + "?>");
+      }
+    };
+    ((XMLResource) coll.getResource(DOC2)).getContentAsSAX(ch);
+    assertEquals("Wrong events.",
+        "[=A][b=B]<{A}a><{B}c d=e>f</b:c><?g h?></a>", sb.toString());
+  }
+
   @Test
   public void testSetContentAsSAX() throws Exception {
     // store small document
@@ -134,6 +171,7 @@ public class XMLResourceTest extends XMLDBBaseTest {
     coll.storeResource(doc2);
     coll.storeResource(doc3);
     assertEquals("Wrong number of documents.", 3, coll.getResourceCount());
+    assertNotNull("Document not found.", coll.getResource(DOC2));
 
     final Resource doc1 = coll.getResource(DOC1);
     compare(DOCPATH + DOC1, doc1);
@@ -144,6 +182,23 @@ public class XMLResourceTest extends XMLDBBaseTest {
     assertEquals("Wrong number of documents.", 1, coll.getResourceCount());
   }
 
+  @Test
+  public void testSetContentAsSAXProperties() throws Exception {
+    // whitespaces are chopped, as specified by the properties of the collection
+    final XMLResource doc = (XMLResource) coll.createResource(DOC2,
+        XMLResource.RESOURCE_TYPE);
+    final XMLReader reader = XMLReaderFactory.createXMLReader();
+    reader.setContentHandler(doc.setContentAsSAX());
+    reader.parse(new InputSource(new StringReader("<a> <b/> </a>")));
+    coll.storeResource(doc);
+
+    final XPathQueryService serv =
+        (XPathQueryService) coll.getService("XPathQueryService", "1.0");
+    assertEquals("Whitespaces were not chopped.", "0",
+        serv.queryResource(DOC2, "count(.//text())").getResource(0).getContent());
+    coll.removeResource(doc);
+  }
+
   /**
    * Compares an XML resource with a file on disk.
    * @param file file name
@@ -2,6 +2,7 @@ package org.basex.test.api.xmldb;
 
 import static org.junit.Assert.*;
 
+import org.basex.api.xmldb.*;
 import org.junit.*;
 import org.xmldb.api.base.*;
 import org.xmldb.api.modules.*;
@@ -123,6 +124,26 @@ public class XPathQueryServiceTest extends XMLDBBaseTest {
     assertEquals("XPathQueryService", serv.getName());
   }
 
+  @Test
+  public void testDeclareVariable() throws Exception {
+    // bind variables
+    final BXQueryService bx = (BXQueryService) serv;
+    bx.declareVariable("a", "x");
+    bx.declareVariable("b", 1);
+    ResourceSet set = serv.query("$a || $b");
+    assertEquals("Wrong result.", "x1", set.getResource(0).getContent());
+
+    // remove binding
+    bx.declareVariable("b", null);
+    set = serv.query("$a");
+    assertEquals("Wrong result.", "x", set.getResource(0).getContent());
+    bx.clearVariables();
+    try {
+      serv.query("$a");
+      fail("Variable should be unbound.");
+    } catch(final XMLDBException ex) { }
+  }
+
   @Test
   public void testGetVersion() throws Exception {
     assertEquals("1.0", serv.getVersion());
@@ -0,0 +1,224 @@
+package org.basex.test.api.xmldb;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+import org.xmldb.api.base.*;
+import org.xmldb.api.modules.*;
+
+/**
+ * This class tests the XMLDB/API XUpdateQueryService implementation.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+@SuppressWarnings("all")
+public class XUpdateQueryServiceTest extends XMLDBBaseTest {
+  /** XUpdate prefix. */
+  private static final String MODS =
+    "<xupdate:modifications version='1.0' " +
+    "xmlns:xupdate='http://www.xmldb.org/xupdate'>";
+  /** XUpdate prefix with an additional namespace declaration. */
+  private static final String MODSNS =
+    "<xupdate:modifications version='1.0' " +
+    "xmlns:xupdate='http://www.xmldb.org/xupdate' xmlns:p='urn:p'>";
+  /** XUpdate suffix. */
+  private static final String END = "</xupdate:modifications>";
+  /** Collection. */
+  private Collection coll;
+  /** Resource. */
+  private XUpdateQueryService serv;
+  /** Query service. */
+  private XPathQueryService query;
+
+  @Before
+  public void setUp() throws Exception {
+    createDB();
+    final Class<?> c = Class.forName(DRIVER);
+    final Database database = (Database) c.newInstance();
+    coll = database.getCollection(PATH, LOGIN, PW);
+    serv = (XUpdateQueryService) coll.getService("XUpdateQueryService", "1.0");
+    query = (XPathQueryService) coll.getService("XPathQueryService", "1.0");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    coll.close();
+    dropDB();
+  }
+
+  @Test
+  public void testAppend() throws Exception {
+    assertEquals("Wrong count.", 1, serv.update(MODS +
+      "<xupdate:append select='/first'><author>A</author>" +
+      "<xupdate:element name='year'>2012</xupdate:element>" +
+      "</xupdate:append></xupdate:modifications>"));
+    assertEquals("Wrong result.", "<first><title>First Document</title>" +
+      "<author>A</author><year>2012</year></first>", content("/first"));
+
+    // insert before the first child
+    serv.update(MODS + "<xupdate:append select='/first' child='1'><id/>" +
+      "</xupdate:append></xupdate:modifications>");
+    assertEquals("Wrong result.", "id", content("name(/first/*[1])"));
+
+    // append after the last child
+    serv.update(MODS + "<xupdate:append select='/first' child='last()'><end/>" +
+      "</xupdate:append></xupdate:modifications>");
+    assertEquals("Wrong result.", "end", content("name(/first/*[last()])"));
+  }
+
+  @Test
+  public void testInsert() throws Exception {
+    assertEquals("Wrong count.", 2, serv.update(MODS +
+      "<xupdate:insert-before select='/first/title'><a/></xupdate:insert-before>" +
+      "<xupdate:insert-after select='/first/title'><b/></xupdate:insert-after>" + END));
+    assertEquals("Wrong result.",
+      "<first><a/><title>First Document</title><b/></first>", content("/first"));
+  }
+
+  @Test
+  public void testVariable() throws Exception {
+    // variables are not counted; values are copied into the new content
+    assertEquals("Wrong count.", 1, serv.update(MODS +
+      "<xupdate:variable name='t' select='/first/title'/>" +
+      "<xupdate:append select='/first'>" +
+      "<copy><xupdate:value-of select='$t/text()'/></copy>" +
+      "</xupdate:append>" + END));
+    assertEquals("Wrong result.", "<first><title>First Document</title>" +
+      "<copy>First Document</copy></first>", content("/first"));
+  }
+
+  @Test
+  public void testConstructors() throws Exception {
+    assertEquals("Wrong count.", 1, serv.update(MODS +
+      "<xupdate:append select='/first'>" +
+      "<xupdate:attribute name='id'>5</xupdate:attribute>" +
+      "<xupdate:element name='e'><xupdate:attribute name='a'>1</xupdate:attribute>" +
+      "x</xupdate:element>" +
+      "<xupdate:comment>c</xupdate:comment>" +
+      "<xupdate:processing-instruction name='pi'>v</xupdate:processing-instruction>" +
+      "</xupdate:append>" + END));
+    assertEquals("Wrong result.", "<first id=\"5\"><title>First Document</title>" +
+      "<e a=\"1\">x</e><!--c--><?pi v?></first>", content("/first"));
+  }
+
+  @Test
+  public void testNamespaces() throws Exception {
+    // literal and constructed elements with prefixes
+    assertEquals("Wrong count.", 1, serv.update(MODSNS +
+      "<xupdate:append select='/first'><p:x/>" +
+      "<xupdate:element name='p:y'/></xupdate:append>" + END));
+    assertEquals("Wrong result.", "2",
+        content("count(/first/*[namespace-uri() = 'urn:p'])"));
+
+    // prefixes in selections and new names
+    assertEquals("Wrong count.", 1, serv.update(MODSNS +
+      "<xupdate:rename select='/first/p:x'>p:z</xupdate:rename>" + END));
+    assertEquals("Wrong result.", "p:z", content("name(/first/*[2])"));
+    assertEquals("Wrong result.", "urn:p", content("namespace-uri(/first/*[2])"));
+  }
+
+  @Test(timeout = 20000)
+  public void testConcurrent() throws Exception {
+    // an open lazy result set must not block updates
+    query.setProperty("lazy", "true");
+    final ResourceIterator iter = query.query("//node()").getIterator();
+    assertTrue("Result expected.", iter.hasMoreResources());
+    serv.update(MODS + "<xupdate:append select='/first'><a/></xupdate:append>" +
+      "</xupdate:modifications>");
+    query.setProperty("lazy", "false");
+
+    // run queries and updates in parallel, using separate collection instances
+    final Database database = (Database) Class.forName(DRIVER).newInstance();
+    final Throwable[] error = new Throwable[1];
+    final Thread[] threads = new Thread[8];
+    for(int t = 0; t < threads.length; t++) {
+      final boolean update = t % 2 == 0;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            final Collection c = database.getCollection(PATH, LOGIN, PW);
+            final XUpdateQueryService xu = (XUpdateQueryService)
+                c.getService("XUpdateQueryService", "1.0");
+            final XPathQueryService xp = (XPathQueryService)
+                c.getService("XPathQueryService", "1.0");
+            for(int i = 0; i < 20; i++) {
+              if(update) {
+                xu.update(MODS + "<xupdate:append select='/first'><b/>" +
+                  "</xupdate:append></xupdate:modifications>");
+              } else {
+                xp.query("count(//b)").getResource(0).getContent();
+              }
+            }
+            c.close();
+          } catch(final Throwable ex) {
+            error[0] = ex;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for(final Thread t : threads) t.join();
+    if(error[0] != null) throw new AssertionError(error[0]);
+    assertEquals("Wrong count.", "80", content("count(//b)"));
+  }
+
+  @Test
+  public void testUpdate() throws Exception {
+    assertEquals("Wrong count.", 2, serv.updateResource(DOC1, MODS +
+      "<xupdate:update select='/first/title'>New</xupdate:update>" +
+      "<xupdate:rename select='/first'>root</xupdate:rename>" +
+      "</xupdate:modifications>"));
+    assertEquals("Wrong result.", "<root><title>New</title></root>", content("/*"));
+  }
+
+  @Test
+  public void testRemove() throws Exception {
+    assertEquals("Wrong count.", 1, serv.update(MODS +
+      "<xupdate:remove select='//title'/></xupdate:modifications>"));
+    assertEquals("Wrong result.", "<first/>", content("/first"));
+
+    // no nodes selected
+    assertEquals("Wrong count.", 0, serv.update(MODS +
+      "<xupdate:remove select='//title'/></xupdate:modifications>"));
+  }
+
+  @Test
+  public void testInvalid() throws Exception {
+    try {
+      serv.update("<modifications/>");
+      fail("Invalid root element was accepted.");
+    } catch(final XMLDBException ex) { }
+
+    try {
+      serv.update(MODS + "<xupdate:unknown select='/'/></xupdate:modifications>");
+      fail("Unknown command was accepted.");
+    } catch(final XMLDBException ex) { }
+
+    try {
+      serv.updateResource("UnknownDoc", MODS + "</xupdate:modifications>");
+      fail("Update was executed on unknown document.");
+    } catch(final XMLDBException ex) { }
+  }
+
+  @Test
+  public void testGetName() throws Exception {
+    assertEquals("XUpdateQueryService", serv.getName());
+  }
+
+  @Test
+  public void testGetVersion() throws Exception {
+    assertEquals("1.0", serv.getVersion());
+  }
+
+  /**
+   * Returns the first result of the specified query.
+   * @param qu query
+   * @return result
+   * @throws XMLDBException exception
+   */
+  private String content(final String qu) throws XMLDBException {
+    return query.query(qu).getResource(0).getContent().toString();
+  }
+}
@@ -0,0 +1,113 @@
+package org.basex.test.http;
+
+import static org.basex.core.Text.*;
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.http.*;
+import org.basex.io.*;
+import org.junit.*;
+
+/**
+ * This class tests the health service.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class HealthTest extends HTTPTest {
+  /** Root path. */
+  private static final String ROOT = "http://" + LOCALHOST + ":9998/";
+
+  // INITIALIZERS =============================================================
+
+  /**
+   * Start server.
+   * @throws Exception exception
+   */
+  @BeforeClass
+  public static void start() throws Exception {
+    init(ROOT, true);
+  }
+
+  /**
+   * Restores a successful warm-up.
+   */
+  @After
+  public void reset() {
+    HTTPContext.warmup(false, null, null, null);
+  }
+
+  // TEST METHODS =============================================================
+
+  /**
+   * Checks if the services are reported as ready.
+   * @throws Exception exception
+   */
+  @Test
+  public void ready() throws Exception {
+    assertTrue(HTTPContext.ready());
+    assertNull(HTTPContext.warmupErrors());
+    assertEquals("OK", get("health"));
+  }
+
+  /**
+   * Checks that no credentials are required.
+   * @throws Exception exception
+   */
+  @Test
+  public void noAuthentication() throws Exception {
+    assertEquals("OK", get("health"));
+    assertEquals("OK", get("health?x=1"));
+  }
+
+  /**
+   * Checks that the services are reported as unavailable during the warm-up.
+   * @throws Exception exception
+   */
+  @Test
+  public void running() throws Exception {
+    // query that blocks the warm-up for some time
+    final IOFile query = new IOFile(CONTEXT.mprop.get(MainProp.WEBPATH), "sleep.xq");
+    query.write(token("declare namespace t = 'java:java.lang.Thread'; t:sleep(2000)"));
+    try {
+      final Thread warmup = new Thread() {
+        @Override
+        public void run() {
+          HTTPContext.warmup(false, null, query.path(), null);
+        }
+      };
+      warmup.start();
+      while(HTTPContext.ready()) Thread.sleep(1);
+      try {
+        get("health");
+        fail("Services should not be ready.");
+      } catch(final BaseXException ex) {
+        assertTrue(ex.getMessage(), ex.getMessage().contains("not ready"));
+      }
+      warmup.join();
+      assertEquals("OK", get("health"));
+    } finally {
+      query.delete();
+    }
+  }
+
+  /**
+   * Checks that failed warm-up steps are reported, and that all steps are run.
+   * @throws Exception exception
+   */
+  @Test
+  public void failed() throws Exception {
+    HTTPContext.warmup(false, "unknown1, unknown2", null, null);
+    assertTrue(HTTPContext.ready());
+    final String errors = HTTPContext.warmupErrors();
+    assertNotNull(errors);
+    assertTrue(errors, errors.contains("unknown1") && errors.contains("unknown2"));
+    try {
+      get("health");
+      fail("Failed warm-up was not reported.");
+    } catch(final BaseXException ex) {
+      assertTrue(ex.getMessage(), ex.getMessage().contains("Warm-up failed"));
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package org.basex.test.http;
+
+import static org.junit.Assert.*;
+
+import org.basex.http.*;
+import org.junit.*;
+
+/**
+ * This class tests the parsing and matching of media types.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class MediaTypeTest {
+  /** Delta for comparing quality factors. */
+  private static final double DELTA = 0.0001;
+
+  /** Parses single media types. */
+  @Test
+  public void parse() {
+    MediaType mt = MediaType.get("Text/HTML; level=1; q=0.7");
+    assertEquals("text", mt.type);
+    assertEquals("html", mt.subtype);
+    assertEquals(0.7, mt.quality, DELTA);
+
+    // legacy wildcard
+    mt = MediaType.get("*");
+    assertEquals("*/*", mt.toString());
+    assertEquals(1, mt.quality, DELTA);
+
+    // quality factors are limited to the range 0..1; invalid factors are ignored
+    assertEquals(1, MediaType.get("a/b;q=2").quality, DELTA);
+    assertEquals(0, MediaType.get("a/b;q=-1").quality, DELTA);
+    assertEquals(1, MediaType.get("a/b;q=x").quality, DELTA);
+
+    // invalid types never match
+    mt = MediaType.get("text");
+    assertNull(mt.type);
+    assertFalse(mt.matches(MediaType.get("*/*")));
+    assertNull(MediaType.get("text/").type);
+  }
+
+  /** Parses lists of media ranges. */
+  @Test
+  public void list() {
+    assertEquals("*/*", MediaType.list(null)[0].toString());
+    assertEquals("*/*", MediaType.list(" ")[0].toString());
+    final MediaType[] list = MediaType.list("text/plain;q=0.5, application/*");
+    assertEquals(2, list.length);
+    assertEquals(0.5, list[0].quality, DELTA);
+    assertEquals("application/*", list[1].toString());
+  }
+
+  /** Matches types and wildcards. */
+  @Test
+  public void matches() {
+    final MediaType html = MediaType.get("text/html");
+    assertTrue(html.matches(MediaType.get("text/html")));
+    assertTrue(html.matches(MediaType.get("text/*")));
+    assertTrue(html.matches(MediaType.get("*/*")));
+    assertTrue(MediaType.get("text/*").matches(html));
+    assertFalse(html.matches(MediaType.get("text/plain")));
+    assertFalse(html.matches(MediaType.get("image/*")));
+
+    assertFalse(html.wildcard());
+    assertTrue(MediaType.get("text/*").wildcard());
+    assertTrue(MediaType.get("*/*").wildcard());
+  }
+
+  /** Chooses quality factors by the most specific media range. */
+  @Test
+  public void quality() {
+    final MediaType[] ranges =
+        MediaType.list("text/*;q=0.3, text/html;q=0.7, */*;q=0.5, image/png;q=0");
+    assertEquals(0.7, MediaType.get("text/html").quality(ranges), DELTA);
+    assertEquals(0.3, MediaType.get("text/plain").quality(ranges), DELTA);
+    assertEquals(0.5, MediaType.get("application/xml").quality(ranges), DELTA);
+    // explicitly excluded type
+    assertEquals(0, MediaType.get("image/png").quality(ranges), DELTA);
+    // no matching range
+    assertEquals(0, MediaType.get("text/html").quality(MediaType.list("image/*")),
+        DELTA);
+  }
+}
@@ -5,8 +5,10 @@ import static org.basex.io.MimeTypes.*;
 import static org.junit.Assert.*;
 
 import java.io.*;
+import java.net.*;
 
 import org.basex.core.*;
+import org.basex.http.*;
 import org.basex.io.*;
 import org.basex.util.*;
 import org.junit.*;
@@ -211,6 +213,34 @@ public final class RestXqTest extends HTTPTest {
     getE("declare %R:path('') %R:produces('X') function m:f() {1};", "");
   }
 
+  /**
+   * {@code %produces} annotation, combined with quality factors of the
+   * {@code Accept} header.
+   * @throws Exception exception
+   */
+  @Test public void producesAccept() throws Exception {
+    install("declare %R:path('') %R:produces('text/plain') function m:t() {'T'};" +
+      "declare %R:path('') %R:produces('application/xml') function m:x() {'X'};");
+    // choose function with the highest quality factor
+    accept("text/plain, application/xml;q=0.5", "T", TEXT_PLAIN);
+    accept("text/plain;q=0.5, application/xml", "X", APP_XML);
+    // wildcards: the most specific range determines the quality factor
+    accept("application/*", "X", APP_XML);
+    accept("text/*;q=0.9, */*;q=0.1", "T", TEXT_PLAIN);
+    // excluded types
+    accept("text/plain;q=0, */*", "X", APP_XML);
+    acceptE("text/plain;q=0, application/xml;q=0");
+    // functions with the same quality factor
+    acceptE("*/*");
+
+    // choose content type preferred by the client
+    install("declare %R:path('') %R:produces('text/plain', 'application/xml') " +
+      "function m:f() {'F'};");
+    accept("application/xml;q=0.9, text/plain;q=0.5", "F", APP_XML);
+    accept("text/*", "F", TEXT_PLAIN);
+    accept("application/xml, text/plain;q=0", "F", APP_XML);
+  }
+
   /**
    * {@code %HEAD} method.
    * @throws Exception exception
@@ -318,6 +348,64 @@ public final class RestXqTest extends HTTPTest {
       "declare %R:path('')  function m:a() { element R:forward { 'a' } };" +
       "declare %R:path('a') function m:b() { 'F' };";
     get(f, "", "F");
+    // forward to function with path template
+    get("declare %R:path('')  function m:a() { element R:forward { 'a/x' } };" +
+      "declare %R:path('a/{$x}') function m:b($x) { $x };", "", "x");
+    // forward twice
+    get("declare %R:path('')  function m:a() { element R:forward { 'b' } };" +
+      "declare %R:path('b') function m:b() { element R:forward { 'c' } };" +
+      "declare %R:path('c') function m:c() { 'C' };", "", "C");
+    // relative targets are resolved against the previous target
+    get("declare %R:path('x/y') function m:a() { element R:forward { 'sub/z' } };" +
+      "declare %R:path('x/sub/z') function m:b() { element R:forward { 'w' } };" +
+      "declare %R:path('x/sub/w') function m:c() { 'W' };" +
+      "declare %R:path('x/w') function m:d() { 'wrong' };", "x/y", "W");
+    // forward to updating function
+    get("declare %R:path('') function m:a() { element R:forward { 'u' } };" +
+      "declare %updating %R:path('u') function m:u() { db:output('U') };", "", "U");
+  }
+
+  /**
+   * Static variables.
+   * @throws Exception exception */
+  @Test public void staticVar() throws Exception {
+    install("declare %R:static variable $m:v := random:double();" +
+        "declare %R:path('') function m:f() { $m:v };");
+    assertEquals(get(""), get(""));
+    // unreferenced variables are not evaluated
+    get("declare %R:static variable $m:e := error();" +
+        "declare %R:path('') function m:f() { 1 };", "", "1");
+    assertEquals("1", get(""));
+    // annotation is not allowed for functions
+    getE("declare %R:static %R:path('') function m:f() { 1 };", "");
+  }
+
+  /**
+   * Cached WADL file, entity tags and conditional requests.
+   * @throws Exception exception */
+  @Test public void wadl() throws Exception {
+    install("declare %R:path('wadl1') function m:f() { 1 };");
+    final String[] first = wadl(null);
+    assertEquals("200", first[0]);
+    assertNotNull("No entity tag.", first[1]);
+    assertTrue(first[2], first[2].contains("wadl1"));
+
+    // cached file is returned with the same entity tag
+    final String[] second = wadl(null);
+    assertEquals(first[1], second[1]);
+    assertEquals(first[2], second[2]);
+    // known entity tag: not modified
+    assertEquals("304", wadl(first[1])[0]);
+    assertEquals("304", wadl("\"x\", " + first[1])[0]);
+    assertEquals("200", wadl("\"x\"")[0]);
+
+    // modified modules: new entity tag and file
+    install("declare %R:path('wadl2') function m:f() { 1 };");
+    final String[] third = wadl(first[1]);
+    assertEquals("200", third[0]);
+    assertFalse(first[1].equals(third[1]));
+    assertTrue(third[2], third[2].contains("wadl2"));
+    assertFalse(third[2], third[2].contains("wadl1"));
   }
 
   // PRIVATE METHODS ==========================================================
@@ -395,6 +483,65 @@ public final class RestXqTest extends HTTPTest {
     }
   }
 
+  /**
+   * Executes a GET request with the specified Accept header and tests the result
+   * and the returned content type.
+   * @param accept accepted media types
+   * @param exp expected result
+   * @param type expected content type
+   * @throws IOException I/O exception
+   */
+  private static void accept(final String accept, final String exp, final String type)
+      throws IOException {
+
+    final HttpURLConnection conn = (HttpURLConnection) new URL(ROOT).openConnection();
+    conn.setRequestProperty(HTTPText.ACCEPT, accept);
+    try {
+      assertEquals(exp, read(conn.getInputStream()));
+      final String ct = conn.getContentType();
+      assertTrue("'" + ct + "' does not start with '" + type + "'",
+          ct != null && ct.startsWith(type));
+    } catch(final IOException ex) {
+      throw error(conn, ex);
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  /**
+   * Executes a GET request with the specified Accept header and tests for an error.
+   * @param accept accepted media types
+   * @throws IOException I/O exception
+   */
+  private static void acceptE(final String accept) throws IOException {
+    try {
+      accept(accept, "", "");
+      fail("Error expected: " + accept);
+    } catch(final BaseXException ex) {
+    }
+  }
+
+  /**
+   * Requests the WADL file.
+   * @param match value of the If-None-Match header (may be {@code null})
+   * @return status code, entity tag and body
+   * @throws IOException I/O exception
+   */
+  private static String[] wadl(final String match) throws IOException {
+    final URL url = new URL(ROOT + HTTPText.WADL);
+    final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    if(match != null) conn.setRequestProperty(HTTPText.IF_NONE_MATCH, match);
+    try {
+      final int code = conn.getResponseCode();
+      final String body = code == HttpURLConnection.HTTP_OK ?
+          read(conn.getInputStream()) : "";
+      return new String[] { Integer.toString(code),
+          conn.getHeaderField(HTTPText.ETAG), body };
+    } finally {
+      conn.disconnect();
+    }
+  }
+
   /**
    * Installs a new module and removes all others.
    * @param function function to be tested
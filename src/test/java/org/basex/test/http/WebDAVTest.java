@@ -0,0 +1,414 @@
+package org.basex.test.http;
+
+import static javax.servlet.http.HttpServletResponse.*;
+import static org.basex.http.HTTPMethod.*;
+import static org.basex.http.HTTPText.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.http.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * This class tests conditional and partial requests and locks of the WebDAV service.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class WebDAVTest extends HTTPTest {
+  /** Status code: resource is locked. */
+  private static final int SC_LOCKED = 423;
+  /** Root path. */
+  private static final String ROOT = "http://" + Text.LOCALHOST + ":9998/webdav/";
+  /** Path to the raw test file. */
+  private static final String FILE = NAME + "/file.txt";
+  /** Contents of the raw test file. */
+  private static final String CONTENT = "0123456789";
+  /** Maximum age property. */
+  private static final String MAXAGE = Prop.DBPREFIX + "webdavmaxage";
+  /** Cache control header. */
+  private static final String CACHE_CONTROL = "Cache-Control";
+  /** Lock token header. */
+  private static final String LOCK_TOKEN = "Lock-Token";
+  /** Second user. */
+  private static final String USER = "webdav";
+  /** Lock request. */
+  private static final String LOCKINFO = "<D:lockinfo xmlns:D='DAV:'>" +
+      "<D:lockscope><D:exclusive/></D:lockscope><D:locktype><D:write/></D:locktype>" +
+      "<D:owner>" + NAME + "</D:owner></D:lockinfo>";
+
+  // INITIALIZERS =======================================================================
+
+  /**
+   * Start server.
+   * @throws Exception exception
+   */
+  @BeforeClass
+  public static void start() throws Exception {
+    init(ROOT, true);
+  }
+
+  /**
+   * Creates a database with a raw file.
+   * @throws Exception exception
+   */
+  @Before
+  public void create() throws Exception {
+    new CreateDB(NAME).execute(CONTEXT);
+    new Store("file.txt", CONTENT).execute(CONTEXT);
+    new Close().execute(CONTEXT);
+    new CreateUser(USER, Token.md5(USER)).execute(CONTEXT);
+    new Grant("write", USER).execute(CONTEXT);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws Exception exception
+   */
+  @After
+  public void drop() throws Exception {
+    new DropDB(NAME).execute(CONTEXT);
+    new DropUser(USER).execute(CONTEXT);
+  }
+
+  // TEST METHODS =======================================================================
+
+  /**
+   * Conditional GET requests.
+   * @throws Exception exception
+   */
+  @Test
+  public void conditionalGet() throws Exception {
+    final HttpURLConnection conn = request(GET, FILE, true);
+    assertEquals(SC_OK, conn.getResponseCode());
+    assertEquals(CONTENT, read(conn.getInputStream()));
+    final String etag = conn.getHeaderField(ETAG);
+    assertNotNull(etag);
+    conn.disconnect();
+
+    // identical entity tags
+    assertEquals(SC_NOT_MODIFIED, code(GET, FILE, IF_NONE_MATCH, etag));
+    assertEquals(SC_NOT_MODIFIED, code(GET, FILE, IF_NONE_MATCH, "\"x\", " + etag));
+    assertEquals(SC_NOT_MODIFIED, code(GET, FILE, IF_NONE_MATCH, "*"));
+    assertEquals(SC_OK, code(GET, FILE, IF_MATCH, etag));
+
+    // entity tags that only share a prefix with the current tag must not match
+    final String tag = etag.replace("\"", "");
+    final String other = '"' + tag.substring(0, tag.lastIndexOf('_') + 1) + "0\"";
+    assertEquals(SC_OK, code(GET, FILE, IF_NONE_MATCH, other));
+    assertEquals(SC_PRECONDITION_FAILED, code(GET, FILE, IF_MATCH, other));
+    assertEquals(SC_PRECONDITION_FAILED, code(GET, FILE, IF_MATCH, "\"x\""));
+
+    // no conditions are evaluated for unauthenticated requests
+    final HttpURLConnection anon = request(GET, FILE, false);
+    anon.setRequestProperty(IF_NONE_MATCH, etag);
+    assertEquals(SC_UNAUTHORIZED, anon.getResponseCode());
+    anon.disconnect();
+  }
+
+  /**
+   * Conditional PUT requests.
+   * @throws Exception exception
+   */
+  @Test
+  public void conditionalPut() throws Exception {
+    final String etag = header(FILE, ETAG);
+
+    // outdated entity tag
+    assertEquals(SC_PRECONDITION_FAILED, put(FILE, "abc", IF_MATCH, "\"x\""));
+    // resource exists
+    assertEquals(SC_PRECONDITION_FAILED, put(FILE, "abc", IF_NONE_MATCH, "*"));
+    assertEquals(CONTENT, content(FILE));
+
+    // current entity tag: resource is updated, and a new tag is assigned
+    assertTrue(put(FILE, "abc", IF_MATCH, etag) < 300);
+    assertEquals("abc", content(FILE));
+    assertFalse(etag.equals(header(FILE, ETAG)));
+    assertEquals(SC_PRECONDITION_FAILED, put(FILE, CONTENT, IF_MATCH, etag));
+
+    // new resource
+    assertTrue(put(NAME + "/new.txt", "new", IF_NONE_MATCH, "*") < 300);
+    assertEquals("new", content(NAME + "/new.txt"));
+  }
+
+  /**
+   * Range requests on raw files.
+   * @throws Exception exception
+   */
+  @Test
+  public void range() throws Exception {
+    // support for partial requests is announced
+    assertEquals(BYTES, header(FILE, ACCEPT_RANGES));
+    final HttpURLConnection head = request(HEAD, FILE, true);
+    assertEquals(SC_OK, head.getResponseCode());
+    assertEquals(BYTES, head.getHeaderField(ACCEPT_RANGES));
+    head.disconnect();
+
+    // partial content
+    HttpURLConnection conn = request(GET, FILE, true);
+    conn.setRequestProperty("Range", BYTES + "=2-5");
+    assertEquals(SC_PARTIAL_CONTENT, conn.getResponseCode());
+    assertEquals("2345", read(conn.getInputStream()));
+    assertEquals(BYTES + " 2-5/10", conn.getHeaderField("Content-Range"));
+    conn.disconnect();
+
+    // the end of the range is limited to the file size
+    conn = request(GET, FILE, true);
+    conn.setRequestProperty("Range", BYTES + "=8-20");
+    assertEquals(SC_PARTIAL_CONTENT, conn.getResponseCode());
+    assertEquals("89", read(conn.getInputStream()));
+    conn.disconnect();
+
+    // complete content
+    assertEquals(CONTENT, content(FILE));
+  }
+
+  /**
+   * Locks of existing resources.
+   * @throws Exception exception
+   */
+  @Test
+  public void lock() throws Exception {
+    String resp = send("LOCK", FILE, Text.ADMIN, LOCKINFO);
+    assertEquals(SC_OK, status(resp));
+    final String token = field(resp, LOCK_TOKEN);
+    assertTrue(token, token.contains(":"));
+
+    // resource is already locked
+    assertEquals(SC_LOCKED, status(send("LOCK", FILE, Text.ADMIN, LOCKINFO)));
+    assertEquals(SC_LOCKED, status(send("LOCK", FILE, USER, LOCKINFO)));
+
+    // locks can only be refreshed by their owner, and with the correct token
+    final String wrong = "<opaquelocktoken:x>";
+    assertEquals(SC_OK, status(send("LOCK", FILE, Text.ADMIN, null,
+        "If", "(" + token + ')')));
+    assertFalse(status(send("LOCK", FILE, USER, null, "If", "(" + token + ')')) < 300);
+    assertFalse(status(send("LOCK", FILE, Text.ADMIN, null,
+        "If", "(" + wrong + ')')) < 300);
+
+    // locks can only be removed by their owner, and with the correct token
+    assertEquals(SC_PRECONDITION_FAILED,
+        status(send("UNLOCK", FILE, Text.ADMIN, null, LOCK_TOKEN, wrong)));
+    assertEquals(SC_PRECONDITION_FAILED,
+        status(send("UNLOCK", FILE, USER, null, LOCK_TOKEN, token)));
+    assertEquals(SC_NO_CONTENT,
+        status(send("UNLOCK", FILE, Text.ADMIN, null, LOCK_TOKEN, token)));
+
+    // resource can be locked again, by another user
+    resp = send("LOCK", FILE, USER, LOCKINFO);
+    assertEquals(SC_OK, status(resp));
+    assertEquals(SC_NO_CONTENT,
+        status(send("UNLOCK", FILE, USER, null, LOCK_TOKEN, field(resp, LOCK_TOKEN))));
+  }
+
+  /**
+   * Locks of resources that do not exist yet (lock-null resources).
+   * @throws Exception exception
+   */
+  @Test
+  public void lockNull() throws Exception {
+    final String path = NAME + "/locked.txt";
+    assertEquals(SC_UNAUTHORIZED, status(send("LOCK", path, null, LOCKINFO)));
+
+    final String resp = send("LOCK", path, Text.ADMIN, LOCKINFO);
+    assertTrue(resp, status(resp) < 300);
+    final String token = field(resp, LOCK_TOKEN);
+    assertFalse(token.isEmpty());
+
+    // path is already locked
+    assertEquals(SC_LOCKED, status(send("LOCK", path, Text.ADMIN, LOCKINFO)));
+    assertEquals(SC_LOCKED, status(send("LOCK", path, USER, LOCKINFO)));
+  }
+
+  /**
+   * Tests the maximum age of cached resources.
+   * @throws Exception exception
+   */
+  @Test
+  public void maxAge() throws Exception {
+    assertFalse(header(FILE, CACHE_CONTROL).contains("max-age"));
+    System.setProperty(MAXAGE, "60");
+    try {
+      assertTrue(header(FILE, CACHE_CONTROL).contains("max-age=60"));
+      System.setProperty(MAXAGE, "-1");
+      assertTrue(header(FILE, CACHE_CONTROL).contains("max-age=0"));
+    } finally {
+      System.clearProperty(MAXAGE);
+    }
+  }
+
+  // PRIVATE METHODS ====================================================================
+
+  /**
+   * Creates a connection for the specified request.
+   * @param method HTTP method
+   * @param path path
+   * @param auth send credentials
+   * @return connection
+   * @throws IOException I/O exception
+   */
+  private static HttpURLConnection request(final HTTPMethod method, final String path,
+      final boolean auth) throws IOException {
+
+    final HttpURLConnection conn =
+        (HttpURLConnection) new URL(ROOT + path).openConnection();
+    conn.setRequestMethod(method.name());
+    conn.setUseCaches(false);
+    if(auth) {
+      final String encoded = Base64.encode(Text.ADMIN + ':' + Text.ADMIN);
+      conn.setRequestProperty(AUTHORIZATION, BASIC + ' ' + encoded);
+    }
+    return conn;
+  }
+
+  /**
+   * Sends an authenticated request with a single header and returns the status code.
+   * @param method HTTP method
+   * @param path path
+   * @param name header name
+   * @param value header value
+   * @return status code
+   * @throws IOException I/O exception
+   */
+  private static int code(final HTTPMethod method, final String path,
+      final String name, final String value) throws IOException {
+
+    final HttpURLConnection conn = request(method, path, true);
+    try {
+      conn.setRequestProperty(name, value);
+      return conn.getResponseCode();
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  /**
+   * Returns a header of an authenticated GET request.
+   * @param path path
+   * @param name header name
+   * @return header value, or an empty string
+   * @throws IOException I/O exception
+   */
+  private static String header(final String path, final String name)
+      throws IOException {
+
+    final HttpURLConnection conn = request(GET, path, true);
+    try {
+      assertEquals(SC_OK, conn.getResponseCode());
+      final String value = conn.getHeaderField(name);
+      return value == null ? "" : value;
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  /**
+   * Sends an authenticated PUT request with a single header.
+   * @param path path
+   * @param content content
+   * @param name header name
+   * @param value header value
+   * @return status code
+   * @throws IOException I/O exception
+   */
+  private static int put(final String path, final String content, final String name,
+      final String value) throws IOException {
+
+    final HttpURLConnection conn = request(PUT, path, true);
+    try {
+      conn.setDoOutput(true);
+      conn.setRequestProperty(name, value);
+      final OutputStream out = conn.getOutputStream();
+      out.write(Token.token(content));
+      out.close();
+      return conn.getResponseCode();
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  /**
+   * Returns the result of an authenticated GET request.
+   * @param path path
+   * @return result
+   * @throws IOException I/O exception
+   */
+  private static String content(final String path) throws IOException {
+    final HttpURLConnection conn = request(GET, path, true);
+    try {
+      return read(conn.getInputStream());
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  /**
+   * Sends a raw HTTP request. Raw sockets are used, as WebDAV methods are not
+   * supported by {@link HttpURLConnection}.
+   * @param method method
+   * @param path path
+   * @param user user, whose password equals the user name ({@code null}: no
+   * credentials)
+   * @param body request body (may be {@code null})
+   * @param headers additional header names and values
+   * @return response
+   * @throws IOException I/O exception
+   */
+  private static String send(final String method, final String path, final String user,
+      final String body, final String... headers) throws IOException {
+
+    final StringBuilder sb = new StringBuilder();
+    sb.append(method).append(" /webdav/").append(path).append(" HTTP/1.0\r\n");
+    sb.append("Host: ").append(Text.LOCALHOST).append(":9998\r\n");
+    if(user != null) {
+      sb.append(AUTHORIZATION).append(": ").append(BASIC).append(' ');
+      sb.append(Base64.encode(user + ':' + user)).append("\r\n");
+    }
+    for(int h = 0; h < headers.length; h += 2) {
+      sb.append(headers[h]).append(": ").append(headers[h + 1]).append("\r\n");
+    }
+    final byte[] data = Token.token(body == null ? "" : body);
+    sb.append("Content-Length: ").append(data.length).append("\r\n\r\n");
+
+    final Socket socket = new Socket(Text.LOCALHOST, 9998);
+    try {
+      final OutputStream out = socket.getOutputStream();
+      out.write(Token.token(sb.toString()));
+      out.write(data);
+      out.flush();
+      return read(socket.getInputStream());
+    } finally {
+      socket.close();
+    }
+  }
+
+  /**
+   * Returns the status code of a raw response.
+   * @param response response
+   * @return status code
+   */
+  private static int status(final String response) {
+    return Integer.parseInt(response.split(" ", 3)[1]);
+  }
+
+  /**
+   * Returns a header field of a raw response.
+   * @param response response
+   * @param name name of the header
+   * @return value, or an empty string
+   */
+  private static String field(final String response, final String name) {
+    for(final String line : response.split("\r?\n")) {
+      if(line.isEmpty()) break;
+      final int i = line.indexOf(':');
+      if(i != -1 && line.substring(0, i).trim().equalsIgnoreCase(name))
+        return line.substring(i + 1).trim();
+    }
+    return "";
+  }
+}